@@ -0,0 +1,122 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.benchmark;
+
+import net.ripe.rpki.commons.util.RepositoryObjectType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Loads the RPKI objects used by the benchmarks from the test resources of rpki-commons.
+ * <p/>
+ * The conformance objects are "good" and "bad" variants of every object type. Only the objects that are
+ * expected to parse are used, since the bad ones mostly measure early rejection.
+ * <p/>
+ * The base directory defaults to the test resources of the parent project and can be changed using the
+ * <code>rpki.benchmark.objects</code> system property.
+ */
+final class BenchmarkObjects {
+
+    static final String OBJECTS_DIRECTORY_PROPERTY = "rpki.benchmark.objects";
+
+    private static final String[] DEFAULT_DIRECTORIES = {"../src/test/resources", "src/test/resources"};
+
+    private BenchmarkObjects() {
+    }
+
+    static File baseDirectory() {
+        String configured = System.getProperty(OBJECTS_DIRECTORY_PROPERTY);
+        if (configured != null) {
+            return new File(configured);
+        }
+        for (String directory : DEFAULT_DIRECTORIES) {
+            File candidate = new File(directory);
+            if (new File(candidate, "conformance").isDirectory()) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("cannot find benchmark objects, set -D" + OBJECTS_DIRECTORY_PROPERTY + "=<path to src/test/resources>");
+    }
+
+    static File file(String relativePath) {
+        return new File(baseDirectory(), relativePath);
+    }
+
+    static byte[] read(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read " + file, e);
+        }
+    }
+
+    /**
+     * @return all non-"bad" objects of the given type in the conformance and interop directories.
+     */
+    static List<EncodedObject> load(RepositoryObjectType type) {
+        List<EncodedObject> result = new ArrayList<>();
+        for (String directory : Arrays.asList("conformance", "conformance/root", "interop/misc-objects", "interop/rpkid-objects")) {
+            File[] files = file(directory).listFiles();
+            if (files == null) {
+                continue;
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.isFile() && !file.getName().startsWith("bad") && RepositoryObjectType.parse(file.getName()) == type) {
+                    result.add(new EncodedObject(file.toURI().toString(), read(file)));
+                }
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalStateException("no objects of type " + type + " found in " + baseDirectory());
+        }
+        return result;
+    }
+
+    static EncodedObject[] toArray(Collection<EncodedObject> objects) {
+        return objects.toArray(new EncodedObject[0]);
+    }
+
+    static final class EncodedObject {
+        final String location;
+        final byte[] encoded;
+
+        EncodedObject(String location, byte[] encoded) {
+            this.location = location;
+            this.encoded = encoded;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.benchmark;
+
+import net.ripe.rpki.commons.crypto.cms.ghostbuster.GhostbustersCmsParser;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsParser;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
+import net.ripe.rpki.commons.util.RepositoryObjectType;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses every object of a type in turn, so one benchmark operation is one parsed object. Run with
+ * <code>-prof gc</code> to get the allocated bytes per object (<code>gc.alloc.rate.norm</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"Certificate", "Crl", "Manifest", "Roa", "Gbr"})
+    public RepositoryObjectType type;
+
+    private BenchmarkObjects.EncodedObject[] objects;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        objects = BenchmarkObjects.toArray(BenchmarkObjects.load(type));
+        next = 0;
+    }
+
+    @Benchmark
+    public Object parse() {
+        BenchmarkObjects.EncodedObject object = objects[next];
+        next = (next + 1) % objects.length;
+
+        ValidationResult result = ValidationResult.withLocation(object.location);
+        switch (type) {
+            case Certificate:
+                X509ResourceCertificateParser certificateParser = new X509ResourceCertificateParser();
+                certificateParser.parse(result, object.encoded);
+                return certificateParser.isSuccess() ? certificateParser.getCertificate() : result;
+            case Crl:
+                return X509Crl.parseDerEncoded(object.encoded, result);
+            case Manifest:
+                ManifestCmsParser manifestParser = new ManifestCmsParser();
+                manifestParser.parse(result, object.encoded);
+                return manifestParser.isSuccess() ? manifestParser.getManifestCms() : result;
+            case Roa:
+                RoaCmsParser roaParser = new RoaCmsParser();
+                roaParser.parse(result, object.encoded);
+                return roaParser.isSuccess() ? roaParser.getRoaCms() : result;
+            case Gbr:
+                GhostbustersCmsParser gbrParser = new GhostbustersCmsParser();
+                gbrParser.parse(result, object.encoded);
+                return gbrParser.isSuccess() ? gbrParser.getGhostbustersCms() : result;
+            default:
+                throw new IllegalStateException("unsupported object type " + type);
+        }
+    }
+}
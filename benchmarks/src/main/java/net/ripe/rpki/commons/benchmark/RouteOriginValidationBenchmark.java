@@ -0,0 +1,142 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.benchmark;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpAddress;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
+import net.ripe.rpki.commons.util.RepositoryObjectType;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.roa.AllowedRoute;
+import net.ripe.rpki.commons.validation.roa.AnnouncedRoute;
+import net.ripe.rpki.commons.validation.roa.RouteOriginValidationIndex;
+import net.ripe.rpki.commons.validation.roa.RouteOriginValidationPolicy;
+import net.ripe.rpki.commons.validation.roa.RouteValidityState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route origin validation using the validated ROA payloads of the conformance and interop ROAs.
+ * <p/>
+ * For every allowed route the announcements checked are the exact prefix with the authorised origin (valid), with
+ * a different origin (invalid ASN) and, when possible, a too specific prefix (invalid length). One benchmark
+ * operation is one classified announcement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RouteOriginValidationBenchmark {
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    private List<AllowedRoute> allowedRoutes;
+
+    private NestedIntervalMap<IpResource, List<AllowedRoute>> allowedRouteMap;
+
+    private RouteOriginValidationIndex allowedRouteIndex;
+
+    private AnnouncedRoute[] announcements;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<RoaCms> roas = new ArrayList<>();
+        for (BenchmarkObjects.EncodedObject object : BenchmarkObjects.load(RepositoryObjectType.Roa)) {
+            RoaCmsParser parser = new RoaCmsParser();
+            parser.parse(ValidationResult.withLocation(object.location), object.encoded);
+            if (parser.isSuccess()) {
+                roas.add(parser.getRoaCms());
+            }
+        }
+        allowedRoutes = AllowedRoute.fromRoas(roas);
+        allowedRouteMap = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+        allowedRouteIndex = RouteOriginValidationIndex.of(allowedRoutes);
+
+        List<AnnouncedRoute> routes = new ArrayList<>();
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            routes.add(new AnnouncedRoute(allowedRoute.getAsn(), allowedRoute.getPrefix()));
+            routes.add(new AnnouncedRoute(new Asn(allowedRoute.getAsn().longValue() ^ 1), allowedRoute.getPrefix()));
+            if (allowedRoute.getMaximumLength() < allowedRoute.getPrefix().getType().getBitSize()) {
+                int tooSpecific = allowedRoute.getMaximumLength() + 1;
+                routes.add(new AnnouncedRoute(allowedRoute.getAsn(), IpRange.prefix((IpAddress) allowedRoute.getPrefix().getStart(), tooSpecific)));
+            }
+        }
+        announcements = routes.toArray(new AnnouncedRoute[0]);
+        next = 0;
+    }
+
+    @Benchmark
+    public RouteValidityState validateAnnouncedRoute() {
+        AnnouncedRoute announcement = announcements[next];
+        next = (next + 1) % announcements.length;
+        return policy.validateAnnouncedRoute(allowedRouteMap, announcement);
+    }
+
+    @Benchmark
+    public RouteValidityState validateAnnouncedRouteWithIndex() {
+        AnnouncedRoute announcement = announcements[next];
+        next = (next + 1) % announcements.length;
+        return allowedRouteIndex.validate(announcement);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public NestedIntervalMap<IpResource, List<AllowedRoute>> buildAllowedRouteMap() {
+        return RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public RouteOriginValidationIndex buildAllowedRouteIndex() {
+        return RouteOriginValidationIndex.of(allowedRoutes);
+    }
+}
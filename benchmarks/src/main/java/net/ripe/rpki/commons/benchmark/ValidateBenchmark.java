@@ -0,0 +1,150 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.benchmark;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.crl.CrlLocator;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.util.CertificateRepositoryObjectFactory;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
+import net.ripe.rpki.commons.util.RepositoryObjectType;
+import net.ripe.rpki.commons.validation.ValidationOptions;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.joda.time.DateTimeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates already parsed objects against the conformance trust anchor (<code>conformance/root.cer</code>) and its
+ * CRL. One benchmark operation is one validated object.
+ * <p/>
+ * The conformance objects were issued long ago, so the clock is fixed just after the "this update" time of the root
+ * CRL. This makes the benchmark exercise the same code paths as the validation of current objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ValidateBenchmark {
+
+    @Param({"Certificate", "Crl", "Manifest", "Roa", "Gbr"})
+    public RepositoryObjectType type;
+
+    /**
+     * How passed checks are stored: as {@link net.ripe.rpki.commons.validation.ValidationCheck} instances
+     * (<code>all</code>), using {@link ValidationResult#withCompactStorage()} (<code>compact</code>) or not at all
+     * (<code>none</code>).
+     */
+    @Param({"all", "compact", "none"})
+    public String passingChecks;
+
+    private final ValidationOptions options = ValidationOptions.strictValidation();
+
+    private CertificateRepositoryObjectValidationContext context;
+
+    private CrlLocator crlLocator;
+
+    private String[] locations;
+
+    private CertificateRepositoryObject[] objects;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        File rootCertificateFile = BenchmarkObjects.file("conformance/root.cer");
+        X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
+        parser.parse(ValidationResult.withLocation(rootCertificateFile.getName()), BenchmarkObjects.read(rootCertificateFile));
+        X509ResourceCertificate rootCertificate = parser.getCertificate();
+        context = new CertificateRepositoryObjectValidationContext(rootCertificateFile.toURI(), rootCertificate);
+
+        File crlFile = BenchmarkObjects.file("conformance/root/root.crl");
+        X509Crl crl = X509Crl.parseDerEncoded(BenchmarkObjects.read(crlFile), ValidationResult.withLocation(crlFile.getName()));
+        crlLocator = (URI uri, CertificateRepositoryObjectValidationContext context, ValidationResult result) -> crl;
+
+        List<String> parsedLocations = new ArrayList<>();
+        List<CertificateRepositoryObject> parsedObjects = new ArrayList<>();
+        for (BenchmarkObjects.EncodedObject object : BenchmarkObjects.load(type)) {
+            CertificateRepositoryObject parsed = CertificateRepositoryObjectFactory.createCertificateRepositoryObject(object.encoded, ValidationResult.withLocation(object.location));
+            if (parsed != null && !object.location.endsWith("/root.cer")) {
+                parsedLocations.add(object.location);
+                parsedObjects.add(parsed);
+            }
+        }
+        if (parsedObjects.isEmpty()) {
+            throw new IllegalStateException("no parseable objects of type " + type);
+        }
+        locations = parsedLocations.toArray(new String[0]);
+        objects = parsedObjects.toArray(new CertificateRepositoryObject[0]);
+        next = 0;
+
+        DateTimeUtils.setCurrentMillisFixed(crl.getThisUpdateTime().plusMinutes(1).getMillis());
+    }
+
+    @TearDown
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Benchmark
+    public ValidationResult validate() {
+        int index = next;
+        next = (next + 1) % objects.length;
+
+        ValidationResult result = ValidationResult.withLocation(locations[index]);
+        if ("compact".equals(passingChecks)) {
+            result.withCompactStorage();
+        } else if ("none".equals(passingChecks)) {
+            result.withoutStoringPassingChecks();
+        }
+        objects[index].validate(locations[index], context, crlLocator, options, result);
+        return result;
+    }
+}
@@ -29,14 +29,18 @@
  */
 package net.ripe.rpki.commons.crypto;
 
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
 import net.ripe.rpki.commons.crypto.crl.CrlLocator;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.validation.ValidationCheck;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.joda.time.DateTime;
 
 import java.io.Serializable;
 import java.net.URI;
+import java.util.List;
 
 public interface CertificateRepositoryObject extends Serializable {
 
@@ -49,7 +53,34 @@ public interface CertificateRepositoryObject extends Serializable {
 
     boolean isPastValidityTime();
 
+    /**
+     * @return true when the object is past its validity time at the given moment, for example the
+     * {@link ValidationOptions#getValidationTime() validation time}. The default implementation ignores the moment
+     * and checks at the current time.
+     */
+    default boolean isPastValidityTime(DateTime now) {
+        return isPastValidityTime();
+    }
+
     boolean isRevoked();
 
+    /**
+     * Takes over the outcome of an earlier {@link #validate} of the same object in the same context, for validators
+     * that skip validating an object again while a stored outcome is current. Afterwards {@link #isRevoked()} answers
+     * as it would after {@link #validate}. The default implementation keeps no validation state.
+     *
+     * @param checks the warnings and failures of the earlier validation
+     */
+    default void restoreValidationOutcome(List<ValidationCheck> checks) {
+    }
+
     byte[] getEncoded();
+
+    /**
+     * @return the SHA-256 hash of the encoded object, as listed on manifests. Implementations may cache the hash, so
+     * the returned array must not be modified.
+     */
+    default byte[] getSha256() {
+        return ManifestCms.hashContents(getEncoded());
+    }
 }
@@ -31,9 +31,11 @@ package net.ripe.rpki.commons.crypto.cms;
 
 import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
 import net.ripe.rpki.commons.crypto.crl.CrlLocator;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.util.UTC;
 import net.ripe.rpki.commons.validation.*;
 import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
@@ -83,6 +85,8 @@ public abstract class RpkiSignedObject implements CertificateRepositoryObject {
 
     private Boolean revoked;
 
+    private transient volatile byte[] sha256;
+
     protected RpkiSignedObject(RpkiSignedObjectInfo cmsObjectData) {
         this(cmsObjectData.getEncoded(), cmsObjectData.getCertificate(), cmsObjectData.getContentType(), cmsObjectData.getSigningTime());
     }
@@ -99,6 +103,16 @@ public abstract class RpkiSignedObject implements CertificateRepositoryObject {
         return encoded;
     }
 
+    @Override
+    public byte[] getSha256() {
+        byte[] result = sha256;
+        if (result == null) {
+            result = ManifestCms.hashContents(encoded);
+            sha256 = result;
+        }
+        return result;
+    }
+
     public DateTime getSigningTime() {
         return signingTime;
     }
@@ -150,7 +164,7 @@ public abstract class RpkiSignedObject implements CertificateRepositoryObject {
         result.setLocation(savedCurrentLocation);
         result.rejectIfNull(crl, ValidationString.OBJECTS_CRL_VALID, getCrlUri().toString());
         if (crl != null) {
-            validateWithCrl(location, context, options, result, crl);
+            validateWithCrl(location, context, options.withFixedValidationTime(), result, crl);
         }
 
         revoked = hasErrorInRevocationCheck(result.getFailures(new ValidationLocation(location)));
@@ -160,12 +174,16 @@ public abstract class RpkiSignedObject implements CertificateRepositoryObject {
     public void validate(String location, CertificateRepositoryObjectValidationContext context, X509Crl crl, URI crlUri, ValidationOptions options, ValidationResult result) {
         result.rejectIfNull(crl, ValidationString.OBJECTS_CRL_VALID, crlUri.toString());
         if (crl != null) {
-            validateWithCrl(location, context, options, result, crl);
+            validateWithCrl(location, context, options.withFixedValidationTime(), result, crl);
         }
 
         revoked = hasErrorInRevocationCheck(result.getFailures(new ValidationLocation(location)));
     }
 
+    /**
+     * Validates the object and its EE certificate. The options have a fixed validation time, so all checks compare
+     * with the same moment.
+     */
     abstract protected void validateWithCrl(String location, CertificateRepositoryObjectValidationContext context, ValidationOptions options, ValidationResult result, X509Crl crl);
 
     private boolean hasErrorInRevocationCheck(List<ValidationCheck> failures) {
@@ -179,7 +197,17 @@ public abstract class RpkiSignedObject implements CertificateRepositoryObject {
 
     @Override
     public boolean isPastValidityTime() {
-        return getCertificate().isPastValidityTime();
+        return isPastValidityTime(UTC.dateTime());
+    }
+
+    @Override
+    public boolean isPastValidityTime(DateTime now) {
+        return getCertificate().isPastValidityTime(now);
+    }
+
+    @Override
+    public void restoreValidationOutcome(List<ValidationCheck> checks) {
+        revoked = hasErrorInRevocationCheck(checks);
     }
 
     @Override
@@ -190,9 +218,12 @@ public abstract class RpkiSignedObject implements CertificateRepositoryObject {
         return revoked;
     }
 
+    /**
+     * Hashes the (cached) SHA-256 hash of the encoded object instead of the encoded object itself.
+     */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(getEncoded());
+        return Arrays.hashCode(getSha256());
     }
 
     @Override
@@ -207,6 +238,6 @@ public abstract class RpkiSignedObject implements CertificateRepositoryObject {
             return false;
         }
         final RpkiSignedObject other = (RpkiSignedObject) obj;
-        return Arrays.equals(getEncoded(), other.getEncoded());
+        return Arrays.equals(getSha256(), other.getSha256());
     }
 }
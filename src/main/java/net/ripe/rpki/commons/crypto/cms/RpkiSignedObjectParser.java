@@ -30,7 +30,7 @@
 package net.ripe.rpki.commons.crypto.cms;
 
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
-import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapperException;
+import net.ripe.rpki.commons.crypto.util.CertificateFactoryUtil;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
 import net.ripe.rpki.commons.util.UTC;
@@ -41,7 +41,7 @@ import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.cms.Attribute;
 import org.bouncycastle.asn1.cms.CMSAttributes;
 import org.bouncycastle.asn1.cms.Time;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.*;
 import org.bouncycastle.cms.jcajce.JcaSignerInfoVerifierBuilder;
 import org.bouncycastle.operator.OperatorCreationException;
@@ -52,8 +52,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.security.cert.CRLException;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
@@ -77,6 +75,8 @@ public abstract class RpkiSignedObjectParser {
 
     private X509ResourceCertificate certificate;
 
+    private X509CertificateHolder certificateHolder;
+
     protected ASN1ObjectIdentifier contentType;
 
     private DateTime signingTime;
@@ -148,7 +148,7 @@ public abstract class RpkiSignedObjectParser {
         verifyCrl(sp);
 
         if (certificate != null) {
-            verifyCmsSigning(sp, certificate.getCertificate());
+            verifyCmsSigning(sp, certificate.getCertificate(), certificateHolder);
         }
     }
 
@@ -193,8 +193,13 @@ public abstract class RpkiSignedObjectParser {
         }
     }
 
+    /**
+     * The EE certificate is decoded only once: the BouncyCastle holder from the CMS structure is used to match the
+     * signer identifier, and the single JCA certificate created from it is validated and wrapped as-is, instead of
+     * being re-encoded and parsed again.
+     */
     private void parseCmsCertificate(CMSSignedDataParser sp) {
-        Collection<? extends Certificate> certificates = extractCertificate(sp);
+        List<X509CertificateHolder> certificates = extractCertificateHolders(sp);
 
         if (!validationResult.rejectIfNull(certificates, GET_CERTS_AND_CRLS)) {
             return;
@@ -202,11 +207,15 @@ public abstract class RpkiSignedObjectParser {
         if (!validationResult.rejectIfFalse(certificates.size() == 1, ONLY_ONE_EE_CERT_ALLOWED)) {
             return;
         }
-        if (!validationResult.rejectIfFalse(certificates.iterator().next() instanceof X509Certificate, CERT_IS_X509CERT)) {
+
+        X509CertificateHolder holder = certificates.get(0);
+        X509Certificate x509Certificate = decodeCertificate(holder);
+        if (!validationResult.rejectIfNull(x509Certificate, CERT_IS_X509CERT)) {
             return;
         }
 
-        certificate = parseCertificate(certificates.iterator().next());
+        certificateHolder = holder;
+        certificate = parseCertificate(x509Certificate);
         if (validationResult.hasFailureForCurrentLocation()) {
             return;
         }
@@ -215,26 +224,30 @@ public abstract class RpkiSignedObjectParser {
         validationResult.rejectIfNull(certificate.getSubjectKeyIdentifier(), CERT_HAS_SKI);
     }
 
-    private X509ResourceCertificate parseCertificate(Certificate certificate) {
+    private X509ResourceCertificate parseCertificate(X509Certificate x509Certificate) {
+        X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
+        validationResult.pass(CERTIFICATE_PARSED);
+        parser.validateX509Certificate(validationResult, x509Certificate);
+        return parser.isSuccess() ? parser.getCertificate() : null;
+    }
+
+    private List<X509CertificateHolder> extractCertificateHolders(CMSSignedDataParser sp) {
         try {
-            X509Certificate x509certificate = (X509Certificate) certificate;
-            X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
-            parser.parse(validationResult, x509certificate.getEncoded());
-            return parser.isSuccess() ? parser.getCertificate() : null;
-        } catch (CertificateEncodingException e) {
-            throw new AbstractX509CertificateWrapperException("cannot parse already decoded X509 certificate: " + e, e);
+            return BouncyCastleUtil.extractCertificateHolders(sp);
+        } catch (CMSException | StoreException e) {
+            return null;
         }
     }
 
-    private Collection<? extends Certificate> extractCertificate(CMSSignedDataParser sp) {
+    private X509Certificate decodeCertificate(X509CertificateHolder holder) {
         try {
-            return BouncyCastleUtil.extractCertificates(sp);
-        } catch (CMSException | StoreException | CertificateException e) {
+            return CertificateFactoryUtil.holderToCertificate(holder);
+        } catch (CertificateException e) {
             return null;
         }
     }
 
-    private void verifyCmsSigning(CMSSignedDataParser sp, X509Certificate certificate) {
+    private void verifyCmsSigning(CMSSignedDataParser sp, X509Certificate certificate, X509CertificateHolder certificateHolder) {
         // Note: validationResult field is updated by methods used here.
 
         SignerInformation signer = extractSingleCmsSigner(sp);
@@ -242,7 +255,7 @@ public abstract class RpkiSignedObjectParser {
             return;
         }
 
-        if (!verifySigner(signer, certificate)) {
+        if (!verifySigner(signer, certificateHolder)) {
             return;
         }
 
@@ -308,7 +321,7 @@ public abstract class RpkiSignedObjectParser {
         return allAttributesCorrect;
     }
 
-    private boolean verifySigner(SignerInformation signer, X509Certificate certificate) {
+    private boolean verifySigner(SignerInformation signer, X509CertificateHolder certificateHolder) {
         verifySignerVersion(signer);
         validationResult.rejectIfFalse(DIGEST_ALGORITHM_OID.equals(signer.getDigestAlgOID()), CMS_SIGNER_INFO_DIGEST_ALGORITHM);
         validationResult.rejectIfFalse(ALLOWED_SIGNATURE_ALGORITHM_OIDS.contains(signer.getEncryptionAlgOID()), ENCRYPTION_ALGORITHM);
@@ -328,11 +341,7 @@ public abstract class RpkiSignedObjectParser {
         verifyUnsignedAttributes(signer);
 
         SignerId signerId = signer.getSID();
-        try {
-            validationResult.rejectIfFalse(signerId.match(new JcaX509CertificateHolder(certificate)), SIGNER_ID_MATCH);
-        } catch (CertificateEncodingException e) {
-            throw new AbstractX509CertificateWrapperException(e);
-        }
+        validationResult.rejectIfFalse(signerId.match(certificateHolder), SIGNER_ID_MATCH);
 
         return true;
     }
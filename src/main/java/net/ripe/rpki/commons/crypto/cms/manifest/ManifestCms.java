@@ -77,7 +77,7 @@ public class ManifestCms extends RpkiSignedObject {
     /**
      * Allowed format of a manifest entry file name.
      */
-    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_-]+\\.[a-z]{3}");
+    static final Pattern FILE_NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_-]+\\.[a-z]{3}");
 
     private final Map<String, byte[]> hashes;
 
@@ -178,21 +178,22 @@ public class ManifestCms extends RpkiSignedObject {
     }
 
     private void checkManifestValidityTimes(ValidationOptions options, ValidationResult result) {
+        DateTime now = options.getValidationTime();
         DateTime thisUpdateTime = getThisUpdateTime();
         DateTime nextUpdateTime = getNextUpdateTime();
 
-        result.rejectIfFalse(thisUpdateTime.isBefore(nextUpdateTime), ValidationString.MANIFEST_THIS_UPDATE_TIME_BEFORE_NEXT_UPDATE_TIME, thisUpdateTime.toString(), nextUpdateTime.toString());
-        result.rejectIfTrue(thisUpdateTime.isAfterNow(), ValidationString.MANIFEST_BEFORE_THIS_UPDATE_TIME, thisUpdateTime.toString());
+        result.rejectIfFalse(thisUpdateTime.isBefore(nextUpdateTime), ValidationString.MANIFEST_THIS_UPDATE_TIME_BEFORE_NEXT_UPDATE_TIME, thisUpdateTime, nextUpdateTime);
+        result.rejectIfTrue(thisUpdateTime.isAfter(now), ValidationString.MANIFEST_BEFORE_THIS_UPDATE_TIME, thisUpdateTime);
 
         if(options.isStrictManifestCRLValidityChecks()){
-            boolean postGracePeriod = nextUpdateTime.plus(options.getManifestMaxStalePeriod()).isBeforeNow();
+            boolean postGracePeriod = nextUpdateTime.plus(options.getManifestMaxStalePeriod()).isBefore(now);
             if (postGracePeriod) {
-                result.error(ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime.toString());
+                result.error(ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime);
             } else {
-                result.warnIfTrue(nextUpdateTime.isBeforeNow(), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime.toString());
+                result.warnIfTrue(nextUpdateTime.isBefore(now), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime);
             }
         } else {
-            result.warnIfTrue(nextUpdateTime.isBeforeNow(), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime.toString());
+            result.warnIfTrue(nextUpdateTime.isBefore(now), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, nextUpdateTime);
         }
 
     }
@@ -209,6 +210,15 @@ public class ManifestCms extends RpkiSignedObject {
         return getFileContentSpecification(fileName).isSatisfiedBy(contents);
     }
 
+    /**
+     * Verifies the SHA-256 hash of the file contents, as computed by {@link #hashContents(byte[])}, for callers that
+     * also need the hash for other purposes.
+     */
+    public boolean verifyFileHash(String fileName, byte[] contentsHash) {
+        Validate.isTrue(containsFile(fileName));
+        return Arrays.equals(hashes.get(fileName), contentsHash);
+    }
+
     public FileContentSpecification getFileContentSpecification(String fileName) {
         Validate.isTrue(containsFile(fileName));
         return new FileContentSpecification(getHash(fileName));
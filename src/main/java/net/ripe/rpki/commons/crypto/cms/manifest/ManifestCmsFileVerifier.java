@@ -0,0 +1,208 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Verifies the files of a publication point against the hashes on a manifest, reading the files one at a time
+ * instead of loading all of them in memory like {@link ManifestCms#matchesFiles(Map)}.
+ */
+public final class ManifestCmsFileVerifier {
+
+    private static final int FILES_PER_TASK = 64;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final byte MATCHED = 0;
+    private static final byte MISSING = 1;
+    private static final byte MISMATCHED = 2;
+
+    private ManifestCmsFileVerifier() {
+        // Utility classes should not have a public or default constructor.
+    }
+
+    /**
+     * Verifies the regular files in the directory. Files in the directory that are not on the manifest, such as
+     * the manifest itself, are reported as extra files.
+     */
+    public static Result verify(ManifestCms manifest, Path directory) throws IOException {
+        return verify(manifest, directory, Runnable::run);
+    }
+
+    /**
+     * Verifies the regular files in the directory, hashing the files on the executor.
+     *
+     * @see #verify(ManifestCms, Path)
+     */
+    public static Result verify(ManifestCms manifest, Path directory, Executor executor) throws IOException {
+        SortedSet<String> extra = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (!manifest.containsFile(fileName)) {
+                    extra.add(fileName);
+                }
+            }
+        }
+        Result result = verify(manifest, fileName -> resolve(directory, fileName), executor);
+        return new Result(result.missing, extra, result.mismatched);
+    }
+
+    /**
+     * Verifies the files returned by the resolver for the file names on the manifest, hashing the files on the
+     * executor. Files that are not resolved (the resolver returns {@code null} or throws an exception), do not exist
+     * or can not be read are reported as missing. No extra files are reported.
+     */
+    public static Result verify(ManifestCms manifest, Function<String, Path> resolver, Executor executor) {
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>(manifest.getHashes().entrySet());
+        byte[] outcomes = new byte[entries.size()];
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < entries.size(); start += FILES_PER_TASK) {
+            int from = start;
+            int to = Math.min(start + FILES_PER_TASK, entries.size());
+            tasks.add(CompletableFuture.runAsync(() -> {
+                // The digest and buffer are reused for all files of a task.
+                Digest digest = new SHA256Digest();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                for (int i = from; i < to; i++) {
+                    Map.Entry<String, byte[]> entry = entries.get(i);
+                    try {
+                        outcomes[i] = verify(resolver.apply(entry.getKey()), entry.getValue(), digest, buffer);
+                    } catch (RuntimeException e) {
+                        // Only this file can not be read, the other files of the task are still verified.
+                        digest.reset();
+                        outcomes[i] = MISSING;
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+
+        SortedSet<String> missing = new TreeSet<>();
+        SortedSet<String> mismatched = new TreeSet<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == MISSING) {
+                missing.add(entries.get(i).getKey());
+            } else if (outcomes[i] == MISMATCHED) {
+                mismatched.add(entries.get(i).getKey());
+            }
+        }
+        return new Result(missing, Collections.emptySortedSet(), mismatched);
+    }
+
+    private static Path resolve(Path directory, String fileName) {
+        // Do not follow entries that refer to files outside the directory.
+        return ManifestCms.FILE_NAME_PATTERN.matcher(fileName).matches() ? directory.resolve(fileName) : null;
+    }
+
+    private static byte verify(Path file, byte[] expectedHash, Digest digest, byte[] buffer) {
+        if (file == null) {
+            return MISSING;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            digest.reset();
+            return MISSING;
+        }
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.doFinal(hash, 0);
+        return Arrays.equals(expectedHash, hash) ? MATCHED : MISMATCHED;
+    }
+
+    /**
+     * The outcome of verifying files against a manifest. The file names are sorted.
+     */
+    public static final class Result {
+        private final SortedSet<String> missing;
+        private final SortedSet<String> extra;
+        private final SortedSet<String> mismatched;
+
+        private Result(SortedSet<String> missing, SortedSet<String> extra, SortedSet<String> mismatched) {
+            this.missing = Collections.unmodifiableSortedSet(missing);
+            this.extra = Collections.unmodifiableSortedSet(extra);
+            this.mismatched = Collections.unmodifiableSortedSet(mismatched);
+        }
+
+        /**
+         * @return the files on the manifest that were not found.
+         */
+        public SortedSet<String> getMissingFiles() {
+            return missing;
+        }
+
+        /**
+         * @return the files that were found but are not on the manifest.
+         */
+        public SortedSet<String> getExtraFiles() {
+            return extra;
+        }
+
+        /**
+         * @return the files on the manifest with contents that do not match the hash on the manifest.
+         */
+        public SortedSet<String> getMismatchedFiles() {
+            return mismatched;
+        }
+
+        /**
+         * @return true when all files on the manifest were found and match their hash. Extra files are allowed.
+         */
+        public boolean isSuccess() {
+            return missing.isEmpty() && mismatched.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "Result[missing=" + missing + ", extra=" + extra + ", mismatched=" + mismatched + "]";
+        }
+    }
+}
@@ -30,6 +30,8 @@
 package net.ripe.rpki.commons.crypto.crl;
 
 import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.util.CertificateFactoryUtil;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateUtil;
 import net.ripe.rpki.commons.util.EqualsSupport;
 import net.ripe.rpki.commons.util.UTC;
@@ -44,7 +46,6 @@ import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.joda.time.DateTime;
 
 import javax.security.auth.x500.X500Principal;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
@@ -55,8 +56,6 @@ import java.security.NoSuchProviderException;
 import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.cert.CRLException;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509CRLEntry;
 import java.security.cert.X509Certificate;
@@ -74,7 +73,17 @@ public class X509Crl implements CertificateRepositoryObject {
 
     private final byte[] encoded;
 
-    private transient X509CRL crl;
+    private transient volatile X509CRL crl;
+
+    /**
+     * The last public key this CRL's signature was successfully verified with. CRLs are verified for every child
+     * object of a CA, so this avoids repeating the signature verification for each child.
+     */
+    private transient volatile PublicKey verifiedPublicKey;
+
+    private transient volatile RevocationIndex revocationIndex;
+
+    private transient volatile byte[] sha256;
 
     public X509Crl(byte[] encoded) { //NOPMD - ArrayIsStoredDirectly
         Validate.notNull(encoded);
@@ -96,12 +105,24 @@ public class X509Crl implements CertificateRepositoryObject {
         return encoded;
     }
 
+    @Override
+    public byte[] getSha256() {
+        byte[] result = sha256;
+        if (result == null) {
+            result = ManifestCms.hashContents(encoded);
+            sha256 = result;
+        }
+        return result;
+    }
+
 
     public X509CRL getCrl() {
-        if (crl == null) {
-            crl = makeX509CRLFromEncoded(encoded);
+        X509CRL result = crl;
+        if (result == null) {
+            result = makeX509CRLFromEncoded(encoded);
+            crl = result;
         }
-        return crl;
+        return result;
     }
 
     public static X509Crl parseDerEncoded(byte[] encoded, ValidationResult validationResult) {
@@ -120,14 +141,9 @@ public class X509Crl implements CertificateRepositoryObject {
             return null;
         }
         try {
-            try (final ByteArrayInputStream in = new ByteArrayInputStream(encoded)) {
-                final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-                return (X509CRL) factory.generateCRL(in);
-            } catch (final CertificateException | CRLException e) {
-                throw new IllegalArgumentException(e);
-            }
-        } catch (final IOException e) {
-            throw new RuntimeException("Error managing CRL I/O stream", e);
+            return CertificateFactoryUtil.decodeCrl(encoded);
+        } catch (final CRLException e) {
+            throw new IllegalArgumentException(e);
         }
     }
 
@@ -135,7 +151,7 @@ public class X509Crl implements CertificateRepositoryObject {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + Arrays.hashCode(encoded);
+        result = prime * result + Arrays.hashCode(getSha256());
         return result;
     }
 
@@ -151,7 +167,7 @@ public class X509Crl implements CertificateRepositoryObject {
             return false;
         }
         final X509Crl other = (X509Crl) obj;
-        return Arrays.equals(encoded, other.encoded);
+        return Arrays.equals(getSha256(), other.getSha256());
     }
 
 
@@ -189,7 +205,12 @@ public class X509Crl implements CertificateRepositoryObject {
 
     @Override
     public boolean isPastValidityTime() {
-        return getNextUpdateTime().isBeforeNow();
+        return isPastValidityTime(UTC.dateTime());
+    }
+
+    @Override
+    public boolean isPastValidityTime(DateTime now) {
+        return getNextUpdateTime().isBefore(now);
     }
 
     @Override
@@ -206,19 +227,27 @@ public class X509Crl implements CertificateRepositoryObject {
     }
 
     public SortedSet<Entry> getRevokedCertificates() {
+        RevocationIndex index = getRevocationIndex();
         SortedSet<Entry> result = new TreeSet<Entry>();
-        Set<? extends X509CRLEntry> entries = getCrl().getRevokedCertificates();
-        if (entries != null) {
-            for (X509CRLEntry entry : entries) {
-                result.add(new Entry(entry));
-            }
+        for (int i = 0; i < index.serialNumbers.length; i++) {
+            result.add(index.getEntry(i));
         }
         return result;
     }
 
     public Entry getRevokedCertificate(BigInteger serialNumber) {
-        X509CRLEntry entry = getCrl().getRevokedCertificate(serialNumber);
-        return entry == null ? null : new Entry(entry);
+        RevocationIndex index = getRevocationIndex();
+        int i = index.indexOf(serialNumber);
+        return i < 0 ? null : index.getEntry(i);
+    }
+
+    private RevocationIndex getRevocationIndex() {
+        RevocationIndex result = revocationIndex;
+        if (result == null) {
+            result = new RevocationIndex(getCrl());
+            revocationIndex = result;
+        }
+        return result;
     }
 
     public BigInteger getNumber() {
@@ -250,9 +279,18 @@ public class X509Crl implements CertificateRepositoryObject {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Verifies the signature of this CRL. A successful verification is remembered, so verifying again with the
+     * same key returns immediately.
+     */
     public void verify(PublicKey publicKey) throws SignatureException {
+        PublicKey verified = verifiedPublicKey;
+        if (verified != null && (verified == publicKey || verified.equals(publicKey))) {
+            return;
+        }
         try {
             getCrl().verify(publicKey, DEFAULT_SIGNATURE_PROVIDER);
+            verifiedPublicKey = publicKey;
         } catch (InvalidKeyException e) {
             throw new IllegalArgumentException(e);
         } catch (CRLException e) {
@@ -264,8 +302,17 @@ public class X509Crl implements CertificateRepositoryObject {
         }
     }
 
+    /**
+     * Looks up the serial number of the certificate in the revoked serial numbers of this CRL. Indirect CRLs, which
+     * are not allowed in the RPKI, are checked by the JCA implementation instead.
+     */
     public boolean isRevoked(X509Certificate certificate) {
-        return getCrl().isRevoked(certificate);
+        RevocationIndex index = getRevocationIndex();
+        if (index.indirect) {
+            return getCrl().isRevoked(certificate);
+        }
+        return index.indexOf(certificate.getSerialNumber()) >= 0
+                && certificate.getIssuerX500Principal().equals(getIssuer());
     }
 
     public static class X509CRLEntryComparator implements Comparator<X509CRLEntry> {
@@ -275,6 +322,39 @@ public class X509Crl implements CertificateRepositoryObject {
         }
     }
 
+    /**
+     * The revoked serial numbers in ascending order, with their revocation times.
+     */
+    private static final class RevocationIndex {
+        private final BigInteger[] serialNumbers;
+        private final long[] revocationTimes;
+        private final boolean indirect;
+
+        RevocationIndex(X509CRL crl) {
+            Set<? extends X509CRLEntry> entries = crl.getRevokedCertificates();
+            X509CRLEntry[] sorted = entries == null ? new X509CRLEntry[0] : entries.toArray(new X509CRLEntry[0]);
+            Arrays.sort(sorted, new X509CRLEntryComparator());
+
+            boolean hasCertificateIssuer = false;
+            serialNumbers = new BigInteger[sorted.length];
+            revocationTimes = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                serialNumbers[i] = sorted[i].getSerialNumber();
+                revocationTimes[i] = sorted[i].getRevocationDate().getTime();
+                hasCertificateIssuer |= sorted[i].getCertificateIssuer() != null;
+            }
+            indirect = hasCertificateIssuer;
+        }
+
+        int indexOf(BigInteger serialNumber) {
+            return Arrays.binarySearch(serialNumbers, serialNumber);
+        }
+
+        Entry getEntry(int index) {
+            return new Entry(serialNumbers[index], UTC.dateTime(revocationTimes[index]));
+        }
+    }
+
     public static class Entry extends EqualsSupport implements Comparable<Entry>, Serializable {
         private static final long serialVersionUID = 1L;
         private final BigInteger serialNumber;
@@ -35,8 +35,6 @@ import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.cert.X509CRLHolder;
 import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.bouncycastle.cms.CMSException;
 import org.bouncycastle.cms.CMSSignedDataParser;
@@ -119,12 +117,17 @@ public final class BouncyCastleUtil {
     }
 
     public static X509Certificate holderToCertificate(X509CertificateHolder holder) throws CertificateException {
-        return new JcaX509CertificateConverter().getCertificate(holder);
+        return CertificateFactoryUtil.holderToCertificate(holder);
     }
 
-    public static List<? extends X509Certificate> extractCertificates(CMSSignedDataParser signedDataParser) throws StoreException, CMSException, CertificateException {
+    public static List<X509CertificateHolder> extractCertificateHolders(CMSSignedDataParser signedDataParser) throws StoreException, CMSException {
         @SuppressWarnings("unchecked")
         Collection<X509CertificateHolder> holders = signedDataParser.getCertificates().getMatches(new X509CertificateHolderStoreSelector());
+        return new ArrayList<>(holders);
+    }
+
+    public static List<? extends X509Certificate> extractCertificates(CMSSignedDataParser signedDataParser) throws StoreException, CMSException, CertificateException {
+        List<X509CertificateHolder> holders = extractCertificateHolders(signedDataParser);
         List<X509Certificate> result = new ArrayList<X509Certificate>();
         for (X509CertificateHolder holder : holders) {
             result.add(holderToCertificate(holder));
@@ -133,7 +136,7 @@ public final class BouncyCastleUtil {
     }
 
     public static X509CRL holderToCrl(X509CRLHolder holder) throws CRLException {
-        return new JcaX509CRLConverter().getCRL(holder);
+        return CertificateFactoryUtil.holderToCrl(holder);
     }
 
     public static List<? extends X509CRL> extractCrls(CMSSignedDataParser signedDataParser) throws StoreException, CMSException, CRLException {
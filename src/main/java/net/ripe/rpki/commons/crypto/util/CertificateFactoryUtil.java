@@ -0,0 +1,99 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+
+/**
+ * Decodes X.509 certificates and CRLs using a per-thread {@link CertificateFactory}, so the JCA provider lookup
+ * is done once per thread instead of once for every decoded object.
+ */
+public final class CertificateFactoryUtil {
+
+    private static final String X509_CERTIFICATE_TYPE = "X.509";
+
+    /**
+     * CertificateFactory instances are not documented to be thread safe, so every thread gets its own.
+     */
+    private static final ThreadLocal<CertificateFactory> CERTIFICATE_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance(X509_CERTIFICATE_TYPE);
+        } catch (CertificateException e) {
+            throw new IllegalStateException("no " + X509_CERTIFICATE_TYPE + " certificate factory available", e);
+        }
+    });
+
+    private CertificateFactoryUtil() {
+        // Utility classes should not have a public or default constructor.
+    }
+
+    public static CertificateFactory getCertificateFactory() {
+        return CERTIFICATE_FACTORY.get();
+    }
+
+    public static X509Certificate decodeCertificate(byte[] encoded) throws CertificateException {
+        if (encoded == null) {
+            throw new CertificateException("no encoded certificate");
+        }
+        return (X509Certificate) getCertificateFactory().generateCertificate(new ByteArrayInputStream(encoded));
+    }
+
+    public static X509CRL decodeCrl(byte[] encoded) throws CRLException {
+        if (encoded == null) {
+            throw new CRLException("no encoded CRL");
+        }
+        return (X509CRL) getCertificateFactory().generateCRL(new ByteArrayInputStream(encoded));
+    }
+
+    public static X509Certificate holderToCertificate(X509CertificateHolder holder) throws CertificateException {
+        try {
+            return decodeCertificate(holder.getEncoded());
+        } catch (IOException e) {
+            throw new CertificateException("cannot encode certificate holder: " + e.getMessage(), e);
+        }
+    }
+
+    public static X509CRL holderToCrl(X509CRLHolder holder) throws CRLException {
+        try {
+            return decodeCrl(holder.getEncoded());
+        } catch (IOException e) {
+            throw new CRLException("cannot encode CRL holder: " + e.getMessage(), e);
+        }
+    }
+}
@@ -45,9 +45,19 @@ import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
 import net.ripe.rpki.commons.util.RepositoryObjectType;
 import net.ripe.rpki.commons.validation.ValidationChecks;
 import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.ValidationString;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public final class CertificateRepositoryObjectFactory {
 
+    private static final int BATCH_SIZE = 64;
 
     private CertificateRepositoryObjectFactory() {
     }
@@ -59,22 +69,73 @@ public final class CertificateRepositoryObjectFactory {
      * but its contents can not be parsed.
      */
     public static CertificateRepositoryObject createCertificateRepositoryObject(byte[] encoded, ValidationResult validationResult) {
+        return parse(encoded, validationResult, true);
+    }
+
+    /**
+     * Parses the encoded objects on the executor, in tasks of up to {@value #BATCH_SIZE} objects.
+     * <p/>
+     * Every object is parsed into a validation result of its own, with the URI as location. An unexpected exception
+     * while parsing an object is recorded as a failure of that object and does not affect the other objects.
+     *
+     * @param encodedObjects the DER encoded objects by location.
+     * @return the parsed objects, in the iteration order of the encoded objects.
+     */
+    public static Map<URI, ParsedCertificateRepositoryObject> createCertificateRepositoryObjects(Map<URI, byte[]> encodedObjects, Executor executor) {
+        List<Map.Entry<URI, byte[]>> entries = new ArrayList<>(encodedObjects.entrySet());
+        ParsedCertificateRepositoryObject[] parsed = new ParsedCertificateRepositoryObject[entries.size()];
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < entries.size(); start += BATCH_SIZE) {
+            int from = start;
+            int to = Math.min(start + BATCH_SIZE, entries.size());
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    parsed[i] = parse(entries.get(i).getKey(), entries.get(i).getValue());
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+
+        Map<URI, ParsedCertificateRepositoryObject> result = new LinkedHashMap<>();
+        for (ParsedCertificateRepositoryObject object : parsed) {
+            result.put(object.getLocation(), object);
+        }
+        return result;
+    }
 
+    private static ParsedCertificateRepositoryObject parse(URI location, byte[] encoded) {
+        ValidationResult validationResult = ValidationResult.withLocation(location);
+        CertificateRepositoryObject object;
+        try {
+            // The result only holds the checks of this object, so the parsers can record their checks in it directly.
+            object = parse(encoded, validationResult, false);
+        } catch (RuntimeException e) {
+            validationResult.error(ValidationString.VALIDATOR_OBJECT_PROCESSING_EXCEPTION, location.toString());
+            object = null;
+        }
+        return new ParsedCertificateRepositoryObject(location, object, validationResult);
+    }
+
+    /**
+     * @param isolate parse into a separate result that is added to the validation result afterwards, so that
+     *                failures at other locations do not affect the parsers.
+     */
+    private static CertificateRepositoryObject parse(byte[] encoded, ValidationResult validationResult, boolean isolate) {
         RepositoryObjectType objectType = RepositoryObjectType.parse(validationResult.getCurrentLocation().getName());
 
         ValidationChecks.knownObjectType(objectType, validationResult);
 
         switch (objectType) {
             case Manifest:
-                return parseManifest(encoded, validationResult);
+                return parseManifest(encoded, validationResult, isolate);
             case Roa:
-                return parseRoa(encoded, validationResult);
+                return parseRoa(encoded, validationResult, isolate);
             case Certificate:
-                return parseX509Certificate(encoded, validationResult);
+                return parseX509Certificate(encoded, validationResult, isolate);
             case Crl:
                 return parseCrl(encoded, validationResult);
             case Gbr:
-                return parseGbr(encoded, validationResult);
+                return parseGbr(encoded, validationResult, isolate);
             case Unknown:
                 return new UnknownCertificateRepositoryObject(encoded);
             default:
@@ -82,22 +143,32 @@ public final class CertificateRepositoryObjectFactory {
         }
     }
 
+    private static ValidationResult target(ValidationResult validationResult, boolean isolate) {
+        return isolate ? ValidationResult.withLocation(validationResult.getCurrentLocation()) : validationResult;
+    }
+
+    private static void merge(ValidationResult target, ValidationResult validationResult) {
+        if (target != validationResult) {
+            validationResult.addAll(target);
+        }
+    }
+
     private static X509Crl parseCrl(byte[] encoded, ValidationResult validationResult) {
         return X509Crl.parseDerEncoded(encoded, validationResult);
     }
 
-    private static X509GenericCertificate parseX509Certificate(byte[] encoded, ValidationResult validationResult) {
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+    private static X509GenericCertificate parseX509Certificate(byte[] encoded, ValidationResult validationResult, boolean isolate) {
+        final ValidationResult temp = target(validationResult, isolate);
         X509GenericCertificate cert = X509ResourceCertificateParser.parseCertificate(temp, encoded);
-        validationResult.addAll(temp);
+        merge(temp, validationResult);
         return cert;
     }
 
-    private static RoaCms parseRoa(byte[] encoded, ValidationResult validationResult) {
+    private static RoaCms parseRoa(byte[] encoded, ValidationResult validationResult, boolean isolate) {
         final RoaCmsParser parser = new RoaCmsParser();
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = target(validationResult, isolate);
         parser.parse(temp, encoded);
-        validationResult.addAll(temp);
+        merge(temp, validationResult);
         if (parser.isSuccess()) {
             return parser.getRoaCms();
         } else {
@@ -105,28 +176,28 @@ public final class CertificateRepositoryObjectFactory {
         }
     }
 
-    private static ManifestCms parseManifest(byte[] encoded, ValidationResult validationResult) {
+    private static ManifestCms parseManifest(byte[] encoded, ValidationResult validationResult, boolean isolate) {
         final ManifestCmsParser parser = new ManifestCmsParser();
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = target(validationResult, isolate);
         parser.parse(temp, encoded);
         if (parser.isSuccess()) {
-            validationResult.addAll(temp);
+            merge(temp, validationResult);
             return parser.getManifestCms();
         } else {
-            validationResult.addAll(temp);
+            merge(temp, validationResult);
             return null;
         }
     }
 
-    private static GhostbustersCms parseGbr(byte[] encoded, ValidationResult validationResult) {
+    private static GhostbustersCms parseGbr(byte[] encoded, ValidationResult validationResult, boolean isolate) {
         final GhostbustersCmsParser parser = new GhostbustersCmsParser();
-        final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+        final ValidationResult temp = target(validationResult, isolate);
         parser.parse(temp, encoded);
         if (parser.isSuccess()) {
-            validationResult.addAll(temp);
+            merge(temp, validationResult);
             return parser.getGhostbustersCms();
         } else {
-            validationResult.addAll(temp);
+            merge(temp, validationResult);
             return null;
         }
     }
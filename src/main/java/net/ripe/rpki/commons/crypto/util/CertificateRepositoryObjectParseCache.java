@@ -0,0 +1,213 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.cms.ghostbuster.GhostbustersCmsParser;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsParser;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateParser;
+import net.ripe.rpki.commons.crypto.x509cert.X509GenericCertificate;
+import net.ripe.rpki.commons.util.RepositoryObjectType;
+import net.ripe.rpki.commons.validation.ValidationCheck;
+import net.ripe.rpki.commons.validation.ValidationChecks;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.ValidationString;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Caches parsed repository objects by the SHA-256 hash of their encoding, so that objects that did not change
+ * between validation runs (or that are published at several locations) are parsed only once.
+ * <p>
+ * The checks recorded while parsing are stored with the object and added to the validation result on every
+ * lookup, so a cached lookup reports the same checks as {@link CertificateRepositoryObjectFactory#createCertificateRepositoryObject(byte[], ValidationResult)}.
+ * Validating an object changes its state (see {@link CertificateRepositoryObject#isRevoked()}), so every lookup
+ * returns a new object built from the cached parse results. Only CRLs, which validation does not change, are
+ * shared.
+ * The size of the cache is bounded by the total size of the encoded objects. Objects of an unknown type are not
+ * cached. This class is thread-safe.
+ */
+public class CertificateRepositoryObjectParseCache {
+
+    private final Cache<Key, ParsedObject> cache;
+
+    /**
+     * @param maximumEncodedBytes the maximum total size of the encoded objects in the cache.
+     */
+    public CertificateRepositoryObjectParseCache(long maximumEncodedBytes) {
+        Validate.isTrue(maximumEncodedBytes >= 0, "maximum size must not be negative");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumEncodedBytes)
+                .weigher((Key key, ParsedObject value) -> value.encodedLength)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @see CertificateRepositoryObjectFactory#createCertificateRepositoryObject(byte[], ValidationResult)
+     */
+    public CertificateRepositoryObject createCertificateRepositoryObject(byte[] encoded, ValidationResult validationResult) {
+        RepositoryObjectType objectType = RepositoryObjectType.parse(validationResult.getCurrentLocation().getName());
+        if (objectType == RepositoryObjectType.Unknown) {
+            return CertificateRepositoryObjectFactory.createCertificateRepositoryObject(encoded, validationResult);
+        }
+
+        Key key = new Key(objectType, ManifestCms.hashContents(encoded));
+        ParsedObject parsed = cache.getIfPresent(key);
+        if (parsed == null) {
+            ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
+            Supplier<CertificateRepositoryObject> factory = parse(objectType, encoded, temp);
+            parsed = new ParsedObject(factory, temp.getAllValidationChecksForCurrentLocation(), encoded.length);
+            cache.put(key, parsed);
+        }
+
+        // The known object type check refers to the location name, so it is repeated for the current location.
+        ValidationChecks.knownObjectType(objectType, validationResult);
+        parsed.addChecksTo(validationResult);
+        return parsed.factory == null ? null : parsed.factory.get();
+    }
+
+    /**
+     * @return a factory of new objects from the parse results, or {@code null} when parsing failed.
+     */
+    @CheckForNull
+    private static Supplier<CertificateRepositoryObject> parse(RepositoryObjectType objectType, byte[] encoded, ValidationResult validationResult) {
+        switch (objectType) {
+            case Manifest: {
+                ManifestCmsParser parser = new ManifestCmsParser();
+                parser.parse(validationResult, encoded);
+                return parser.isSuccess() ? parser::getManifestCms : null;
+            }
+            case Roa: {
+                RoaCmsParser parser = new RoaCmsParser();
+                parser.parse(validationResult, encoded);
+                return parser.isSuccess() ? parser::getRoaCms : null;
+            }
+            case Gbr: {
+                GhostbustersCmsParser parser = new GhostbustersCmsParser();
+                parser.parse(validationResult, encoded);
+                return parser.isSuccess() ? parser::getGhostbustersCms : null;
+            }
+            case Certificate: {
+                X509CertificateParser<? extends X509GenericCertificate> parser = X509CertificateParser.parseWithTypeSpecificParser(validationResult, encoded);
+                return parser == null ? null : parser::getCertificate;
+            }
+            case Crl: {
+                X509Crl crl = X509Crl.parseDerEncoded(encoded, validationResult);
+                return crl == null ? null : () -> crl;
+            }
+            default:
+                throw new IllegalArgumentException("Unrecognized repository object type");
+        }
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static final class Key {
+        private final RepositoryObjectType objectType;
+        private final byte[] hash;
+        private final int hashCode;
+
+        private Key(RepositoryObjectType objectType, byte[] hash) {
+            this.objectType = objectType;
+            this.hash = hash;
+            this.hashCode = 31 * objectType.hashCode() + Arrays.hashCode(hash);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return objectType == that.objectType && Arrays.equals(hash, that.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class ParsedObject {
+        private final Supplier<CertificateRepositoryObject> factory;
+        private final ValidationCheck[] checks;
+        private final int encodedLength;
+
+        private ParsedObject(Supplier<CertificateRepositoryObject> factory, List<ValidationCheck> checks, int encodedLength) {
+            List<ValidationCheck> parseChecks = new ArrayList<>(checks.size());
+            for (ValidationCheck check : checks) {
+                if (!ValidationString.KNOWN_OBJECT_TYPE.equals(check.getKey())) {
+                    parseChecks.add(check);
+                }
+            }
+            this.factory = factory;
+            this.checks = parseChecks.toArray(new ValidationCheck[0]);
+            this.encodedLength = encodedLength;
+        }
+
+        private void addChecksTo(ValidationResult validationResult) {
+            for (ValidationCheck check : checks) {
+                validationResult.add(check);
+            }
+        }
+    }
+}
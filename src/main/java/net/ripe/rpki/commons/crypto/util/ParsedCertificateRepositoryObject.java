@@ -0,0 +1,74 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.validation.ValidationResult;
+
+import javax.annotation.CheckForNull;
+import java.net.URI;
+
+/**
+ * An object parsed by {@link CertificateRepositoryObjectFactory#createCertificateRepositoryObjects(java.util.Map, java.util.concurrent.Executor)},
+ * with the checks recorded while parsing it.
+ */
+public final class ParsedCertificateRepositoryObject {
+
+    private final URI location;
+    @CheckForNull
+    private final CertificateRepositoryObject object;
+    private final ValidationResult validationResult;
+
+    ParsedCertificateRepositoryObject(URI location, CertificateRepositoryObject object, ValidationResult validationResult) {
+        this.location = location;
+        this.object = object;
+        this.validationResult = validationResult;
+    }
+
+    public URI getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the parsed object, or {@code null} when the encoded object could not be parsed.
+     */
+    @CheckForNull
+    public CertificateRepositoryObject getObject() {
+        return object;
+    }
+
+    public ValidationResult getValidationResult() {
+        return validationResult;
+    }
+
+    public boolean isSuccess() {
+        return object != null && !validationResult.hasFailureForCurrentLocation();
+    }
+}
@@ -30,6 +30,7 @@
 package net.ripe.rpki.commons.crypto.x509cert;
 
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
 import net.ripe.rpki.commons.validation.ValidationCheck;
 import net.ripe.rpki.commons.validation.ValidationStatus;
 import net.ripe.rpki.commons.validation.ValidationString;
@@ -67,6 +68,8 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
 
     private final boolean ca;
 
+    private transient volatile byte[] sha256;
+
     protected AbstractX509CertificateWrapper(X509Certificate certificate) {
         Validate.notNull(certificate);
         this.certificate = certificate;
@@ -85,6 +88,19 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
         }
     }
 
+    /**
+     * @return the SHA-256 hash of the encoded certificate, as listed on manifests. The returned array must not be
+     * modified.
+     */
+    public byte[] getSha256() {
+        byte[] result = sha256;
+        if (result == null) {
+            result = ManifestCms.hashContents(getEncoded());
+            sha256 = result;
+        }
+        return result;
+    }
+
     public String getBase64String() {
         return Base64.getEncoder().encodeToString(this.getEncoded());
     }
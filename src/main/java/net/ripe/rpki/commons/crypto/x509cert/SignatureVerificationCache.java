@@ -0,0 +1,203 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.x509cert;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import org.apache.commons.lang3.Validate;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers the successful signature verifications of certificates, keyed by the SHA-256 hash of the encoded
+ * certificate and the SHA-256 hash of the encoded public key of the issuer. Verifying an unchanged certificate with
+ * the same key again does not repeat the signature verification. Failed verifications are not remembered.
+ * <p/>
+ * The cache can be written to a stream and read back to keep it across restarts. A cache that is read back is
+ * trusted as much as the signature verifications themselves, so it must be stored where only the validator can
+ * modify it. This class is thread-safe.
+ */
+public class SignatureVerificationCache {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HASH_LENGTH = 32;
+
+    private final long maximumSize;
+
+    private final Cache<Key, Boolean> verified;
+
+    /**
+     * The hashes of the issuer keys, by identity. All children of a CA are verified with the same key instance.
+     */
+    private final Cache<PublicKey, byte[]> publicKeyHashes = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(1024)
+            .build();
+
+    /**
+     * @param maximumSize the maximum number of verifications to remember.
+     */
+    public SignatureVerificationCache(long maximumSize) {
+        Validate.isTrue(maximumSize >= 0, "maximum size must not be negative");
+        this.maximumSize = maximumSize;
+        this.verified = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Verifies the signature of the certificate, unless it was verified with the same public key before.
+     *
+     * @see AbstractX509CertificateWrapper#verify(PublicKey)
+     */
+    public void verify(AbstractX509CertificateWrapper certificate, PublicKey publicKey) throws InvalidKeyException, SignatureException {
+        Key key = new Key(certificate.getSha256(), hash(publicKey));
+        if (verified.getIfPresent(key) != null) {
+            return;
+        }
+        certificate.verify(publicKey);
+        verified.put(key, Boolean.TRUE);
+    }
+
+    public long getHitCount() {
+        return verified.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return verified.stats().missCount();
+    }
+
+    public long size() {
+        return verified.size();
+    }
+
+    public void invalidateAll() {
+        verified.invalidateAll();
+    }
+
+    /**
+     * Writes the remembered verifications to the stream. The stream is not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        List<Key> keys = new ArrayList<>(verified.asMap().keySet());
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(keys.size());
+        for (Key key : keys) {
+            data.write(key.hashes);
+        }
+        data.flush();
+    }
+
+    /**
+     * Adds the verifications written by {@link #writeTo(OutputStream)} to this cache. The stream is not closed.
+     *
+     * @throws IOException when the stream can not be read or is not in the expected format.
+     */
+    public void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int version = data.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unsupported signature verification cache version " + version);
+        }
+        int count = data.readInt();
+        if (count < 0) {
+            throw new IOException("invalid signature verification cache size " + count);
+        }
+        // Entries beyond the maximum size would be evicted right away.
+        long skipped = Math.max(0, count - maximumSize);
+        for (int i = 0; i < count; i++) {
+            byte[] hashes = new byte[2 * HASH_LENGTH];
+            data.readFully(hashes);
+            if (i >= skipped) {
+                verified.put(new Key(hashes), Boolean.TRUE);
+            }
+        }
+    }
+
+    private byte[] hash(PublicKey publicKey) {
+        byte[] result = publicKeyHashes.getIfPresent(publicKey);
+        if (result == null) {
+            result = ManifestCms.hashContents(publicKey.getEncoded());
+            publicKeyHashes.put(publicKey, result);
+        }
+        return result;
+    }
+
+    private static final class Key {
+        private final byte[] hashes;
+        private final int hashCode;
+
+        private Key(byte[] certificateHash, byte[] publicKeyHash) {
+            this(concat(certificateHash, publicKeyHash));
+        }
+
+        private Key(byte[] hashes) {
+            this.hashes = hashes;
+            this.hashCode = Arrays.hashCode(hashes);
+        }
+
+        private static byte[] concat(byte[] certificateHash, byte[] publicKeyHash) {
+            byte[] result = new byte[2 * HASH_LENGTH];
+            System.arraycopy(certificateHash, 0, result, 0, HASH_LENGTH);
+            System.arraycopy(publicKeyHash, 0, result, HASH_LENGTH, HASH_LENGTH);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            return Arrays.equals(hashes, ((Key) obj).hashes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
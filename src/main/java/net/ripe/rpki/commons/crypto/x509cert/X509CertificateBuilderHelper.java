@@ -35,6 +35,7 @@ import net.ripe.rpki.commons.crypto.ValidityPeriod;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc8209.RouterExtensionEncoder;
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
+import net.ripe.rpki.commons.crypto.util.CertificateFactoryUtil;
 import org.apache.commons.lang3.Validate;
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.DERSequence;
@@ -53,7 +54,6 @@ import org.bouncycastle.asn1.x509.KeyUsage;
 import org.bouncycastle.asn1.x509.PolicyInformation;
 import org.bouncycastle.cert.CertIOException;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
@@ -266,7 +266,7 @@ public final class X509CertificateBuilderHelper {
         X509v3CertificateBuilder certificateGenerator = createCertificateGenerator();
         try {
             ContentSigner signer = new JcaContentSignerBuilder(signatureAlgorithm).setProvider(signatureProvider).build(signingKeyPair.getPrivate());
-            return new JcaX509CertificateConverter().getCertificate(certificateGenerator.build(signer));
+            return CertificateFactoryUtil.holderToCertificate(certificateGenerator.build(signer));
         } catch (IllegalStateException | OperatorCreationException | CertificateException e) {
             throw new X509ResourceCertificateBuilderException(e);
         }
@@ -31,16 +31,14 @@ package net.ripe.rpki.commons.crypto.x509cert;
 
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc8209.RouterExtensionEncoder;
+import net.ripe.rpki.commons.crypto.util.CertificateFactoryUtil;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import org.apache.commons.lang3.ArrayUtils;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import javax.annotation.CheckForNull;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.ECPublicKey;
@@ -84,6 +82,18 @@ public abstract class X509CertificateParser<T extends AbstractX509CertificateWra
     }
 
     public static X509GenericCertificate parseCertificate(ValidationResult result, byte[] encoded) {
+        X509CertificateParser<? extends X509GenericCertificate> parser = parseWithTypeSpecificParser(result, encoded);
+        return parser == null ? null : parser.getCertificate();
+    }
+
+    /**
+     * Parses the certificate with the parser for its type, resource or router certificate.
+     *
+     * @return the parser, of which every {@link #getCertificate()} returns a new certificate, or {@code null} when
+     * parsing failed.
+     */
+    @CheckForNull
+    public static X509CertificateParser<? extends X509GenericCertificate> parseWithTypeSpecificParser(ValidationResult result, byte[] encoded) {
         final X509Certificate certificate = parseEncoded(encoded, result);
         if (result.hasFailureForCurrentLocation()) {
             return null;
@@ -98,7 +108,7 @@ public abstract class X509CertificateParser<T extends AbstractX509CertificateWra
 
         parser.validateX509Certificate(result, certificate);
 
-        return result.hasFailureForCurrentLocation() ? null : parser.getCertificate();
+        return result.hasFailureForCurrentLocation() ? null : parser;
     }
 
     protected void validatePublicKey() {
@@ -152,10 +162,9 @@ public abstract class X509CertificateParser<T extends AbstractX509CertificateWra
     }
 
     public static X509Certificate parseX509Certificate(byte[] encoded) {
-        try (InputStream input = new ByteArrayInputStream(encoded)) {
-            final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-            return (X509Certificate) factory.generateCertificate(input);
-        } catch (final CertificateException | IOException e) {
+        try {
+            return CertificateFactoryUtil.decodeCertificate(encoded);
+        } catch (final CertificateException e) {
             return null;
         }
     }
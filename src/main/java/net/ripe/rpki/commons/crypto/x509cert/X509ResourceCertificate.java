@@ -37,6 +37,9 @@ import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.rfc3779.AddressFamily;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionParser;
+import net.ripe.rpki.commons.util.UTC;
+import net.ripe.rpki.commons.validation.ImmutableResourceSet;
+import net.ripe.rpki.commons.validation.ValidationCheck;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
@@ -45,10 +48,12 @@ import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryOb
 import net.ripe.rpki.commons.validation.objectvalidators.ResourceValidatorFactory;
 import net.ripe.rpki.commons.validation.objectvalidators.X509ResourceCertificateValidator;
 import org.apache.commons.lang3.Validate;
+import org.joda.time.DateTime;
 
 import java.net.URI;
 import java.security.cert.X509Certificate;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 
@@ -62,6 +67,7 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
     private final EnumSet<IpResourceType> inheritedResourceTypes;
     private final IpResourceSet resources;
     private Boolean revoked;
+    private transient volatile ImmutableResourceSet immutableResources;
 
 
     protected X509ResourceCertificate(X509Certificate certificate) {
@@ -99,6 +105,18 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
         return new IpResourceSet(resources);
     }
 
+    /**
+     * @return the resources of this certificate, without copying them on every call.
+     */
+    public ImmutableResourceSet getImmutableResources() {
+        ImmutableResourceSet result = immutableResources;
+        if (result == null) {
+            result = ImmutableResourceSet.of(resources);
+            immutableResources = result;
+        }
+        return result;
+    }
+
     public EnumSet<IpResourceType> getInheritedResourceTypes() {
         return inheritedResourceTypes;
     }
@@ -170,7 +188,17 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
 
     @Override
     public boolean isPastValidityTime() {
-        return getValidityPeriod().isExpiredNow();
+        return isPastValidityTime(UTC.dateTime());
+    }
+
+    @Override
+    public boolean isPastValidityTime(DateTime now) {
+        return getValidityPeriod().isExpiredAt(now);
+    }
+
+    @Override
+    public void restoreValidationOutcome(List<ValidationCheck> checks) {
+        revoked = hasErrorInRevocationCheck(checks);
     }
 
     @Override
@@ -181,6 +209,17 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
         return revoked;
     }
 
+    /**
+     * Like {@link #deriveResources(IpResourceSet)}, but returns the resources of this certificate or of the parent
+     * without copying them when nothing has to be combined.
+     */
+    public ImmutableResourceSet deriveResources(ImmutableResourceSet parentResources) {
+        if (inheritedResourceTypes.isEmpty()) {
+            return getImmutableResources();
+        }
+        return getImmutableResources().union(parentResources.retainTypes(inheritedResourceTypes));
+    }
+
     public IpResourceSet deriveResources(IpResourceSet parentResources) {
         IpResourceSet result = new IpResourceSet(resources);
         if (inheritedResourceTypes.isEmpty()) {
@@ -81,9 +81,9 @@ public class X509ResourceCertificateParser extends X509CertificateParser<X509Res
 
     private void validateIssuerAndSubjectDN() {
         X500Name issuer = X500Name.getInstance(certificate.getIssuerX500Principal().getEncoded());
-        getValidationResult().rejectIfFalse(isValidName(issuer), CERT_ISSUER_CORRECT, certificate.getIssuerX500Principal().toString());
+        getValidationResult().rejectIfFalse(isValidName(issuer), CERT_ISSUER_CORRECT, certificate.getIssuerX500Principal());
         X500Name subject = X500Name.getInstance(certificate.getSubjectX500Principal().getEncoded());
-        getValidationResult().rejectIfFalse(isValidName(subject), CERT_SUBJECT_CORRECT, certificate.getSubjectX500Principal().toString());
+        getValidationResult().rejectIfFalse(isValidName(subject), CERT_SUBJECT_CORRECT, certificate.getSubjectX500Principal());
     }
 
     private boolean isValidName(X500Name principal) {
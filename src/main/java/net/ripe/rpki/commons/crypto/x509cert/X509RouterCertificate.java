@@ -31,15 +31,19 @@ package net.ripe.rpki.commons.crypto.x509cert;
 
 import net.ripe.rpki.commons.crypto.crl.CrlLocator;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.util.UTC;
+import net.ripe.rpki.commons.validation.ValidationCheck;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import net.ripe.rpki.commons.validation.ValidationString;
 import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
 import net.ripe.rpki.commons.validation.objectvalidators.X509RouterCertificateValidator;
+import org.joda.time.DateTime;
 
 import java.net.URI;
 import java.security.cert.X509Certificate;
+import java.util.List;
 
 public class X509RouterCertificate extends X509GenericCertificate implements X509CertificateObject {
 
@@ -92,7 +96,17 @@ public class X509RouterCertificate extends X509GenericCertificate implements X50
 
     @Override
     public boolean isPastValidityTime() {
-        return getValidityPeriod().isExpiredNow();
+        return isPastValidityTime(UTC.dateTime());
+    }
+
+    @Override
+    public boolean isPastValidityTime(DateTime now) {
+        return getValidityPeriod().isExpiredAt(now);
+    }
+
+    @Override
+    public void restoreValidationOutcome(List<ValidationCheck> checks) {
+        revoked = hasErrorInRevocationCheck(checks);
     }
 
     @Override
@@ -31,8 +31,11 @@ package net.ripe.rpki.commons.util;
 
 import org.apache.commons.lang3.Validate;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -132,46 +135,110 @@ public class CsvFormatter {
         }
     }
 
+    /**
+     * Writes lines to the writer as they are added, instead of keeping them until they are printed. Values that
+     * contain the separator, a quote or a line break are quoted as described in RFC 4180.
+     */
+    public CsvStream streamWithHeaders(Writer out) throws IOException {
+        CsvStream stream = new CsvStream(out);
+        printHeaders(stream.out);
+        return stream;
+    }
+
+    /**
+     * @see #streamWithHeaders(Writer)
+     */
+    public CsvStream streamWithoutHeaders(Writer out) {
+        return new CsvStream(out);
+    }
+
     private void printHeaders(Writer out) throws IOException {
-        StringBuilder headerLine = new StringBuilder();
-
-        int columnNumber = 1;
-        int numberOfColmns = columns.size();
-        for (CsvColumn col : columns) {
-            headerLine.append(col.getHeading());
-            if (columnNumber < numberOfColmns) {
-                headerLine.append(separator);
+        int numberOfColumns = columns.size();
+        for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+            out.write(columns.get(columnIndex).getHeading());
+            if (columnIndex < numberOfColumns - 1) {
+                out.write(separator);
             }
-            columnNumber++;
         }
-        out.write(headerLine.toString() + "\n");
+        out.write('\n');
     }
 
     private void printRow(Writer out, int i) throws IOException {
-        StringBuilder rowOutput = new StringBuilder();
-
-        int columnNumber = 1;
         int numberOfColumns = columns.size();
-
-        for (CsvColumn col : columns) {
-            printValue(i, rowOutput, col);
-            if (columnNumber < numberOfColumns) {
-                rowOutput.append(separator);
+        for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+            printValue(i, out, columns.get(columnIndex));
+            if (columnIndex < numberOfColumns - 1) {
+                out.write(separator);
             }
-            columnNumber++;
         }
-        out.write(rowOutput.toString() + "\n");
+        out.write('\n');
     }
 
-    private void printValue(int i, StringBuilder rowOutput, CsvColumn col) {
+    private void printValue(int i, Writer out, CsvColumn col) throws IOException {
         if (col.hasQuoteValues()) {
-            rowOutput.append(QUOTE_CHAR);
+            out.write(QUOTE_CHAR);
         }
 
-        rowOutput.append(rowValues.get(col).get(i));
+        out.write(rowValues.get(col).get(i));
 
         if (col.hasQuoteValues()) {
-            rowOutput.append(QUOTE_CHAR);
+            out.write(QUOTE_CHAR);
+        }
+    }
+
+    /**
+     * Lines of a {@link CsvFormatter} that are written as they are added. Closing the stream closes the writer.
+     */
+    public final class CsvStream implements Closeable, Flushable {
+        private final Writer out;
+
+        private CsvStream(Writer out) {
+            this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        }
+
+        public CsvStream addLine(String... values) throws IOException {
+            Validate.isTrue(columns.size() == values.length);
+            for (int columnIndex = 0; columnIndex < values.length; columnIndex++) {
+                if (columnIndex > 0) {
+                    out.write(separator);
+                }
+                String value = values[columnIndex] == null ? "" : values[columnIndex];
+                if (columns.get(columnIndex).hasQuoteValues() || requiresQuotes(value)) {
+                    writeQuoted(value);
+                } else {
+                    out.write(value);
+                }
+            }
+            out.write('\n');
+            return this;
+        }
+
+        private boolean requiresQuotes(String value) {
+            return value.contains(separator) || value.indexOf(QUOTE_CHAR) >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        }
+
+        private void writeQuoted(String value) throws IOException {
+            out.write(QUOTE_CHAR);
+            int start = 0;
+            int quote;
+            while ((quote = value.indexOf(QUOTE_CHAR, start)) >= 0) {
+                // An embedded quote is escaped by doubling it.
+                out.write(value, start, quote - start + 1);
+                out.write(QUOTE_CHAR);
+                start = quote + 1;
+            }
+            out.write(value, start, value.length() - start);
+            out.write(QUOTE_CHAR);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
         }
     }
 
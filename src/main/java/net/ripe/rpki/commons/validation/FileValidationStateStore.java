@@ -0,0 +1,333 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import com.google.common.io.CountingInputStream;
+import org.joda.time.DateTime;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the validation outcomes in memory and appends every change to a log file, which is read back when the store
+ * is opened again.
+ * <p/>
+ * A record that was only partly written, for example because the process was killed, is dropped when the log is
+ * read. Records are buffered: call {@link #flush()} at the end of a validation run. The log grows with every change,
+ * call {@link #compact(DateTime)} to rewrite it with only the outcomes that can still be used.
+ * <p/>
+ * The stored outcomes are trusted as much as the validations themselves, so the file must be stored where only the
+ * validator can modify it.
+ */
+public class FileValidationStateStore implements ValidationStateStore, Closeable {
+
+    private static final int MAGIC = 0x52505653;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    // Length written for a null string.
+    private static final int NULL_STRING = -1;
+
+    private static final ValidationStatus[] STATUSES = ValidationStatus.values();
+
+    private final Path file;
+
+    private final ConcurrentMap<ValidationStateKey, ValidationState> states = new ConcurrentHashMap<>();
+
+    // Guarded by this.
+    private DataOutputStream log;
+
+    private FileValidationStateStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the store, reading the outcomes in the file if it exists.
+     */
+    public static FileValidationStateStore open(Path file) throws IOException {
+        FileValidationStateStore store = new FileValidationStateStore(file);
+        if (Files.exists(file) && Files.size(file) > 0) {
+            long end = store.read();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                if (channel.size() > end) {
+                    channel.truncate(end);
+                }
+            }
+            store.log = openLog(file, false);
+        } else {
+            store.log = openLog(file, true);
+        }
+        return store;
+    }
+
+    @Override
+    @CheckForNull
+    public ValidationState get(ValidationStateKey key) {
+        return states.get(key);
+    }
+
+    @Override
+    public void put(ValidationStateKey key, ValidationState state) {
+        // Update the map and the log together, so the log ends with the outcome in the map.
+        synchronized (this) {
+            states.put(key, state);
+            try {
+                writePut(log, key, state);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void remove(ValidationStateKey key) {
+        synchronized (this) {
+            if (states.remove(key) == null) {
+                return;
+            }
+            try {
+                log.writeByte(REMOVE);
+                writeKey(log, key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void retainAll(Set<ValidationStateKey> keys) {
+        synchronized (this) {
+            for (ValidationStateKey key : states.keySet()) {
+                if (!keys.contains(key)) {
+                    remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     */
+    public synchronized void flush() throws IOException {
+        log.flush();
+    }
+
+    /**
+     * Replaces the file with a file that only contains the outcomes that are current at the moment. Outcomes that
+     * are no longer current can not be used again and are removed from the store.
+     *
+     * @see ValidationState#isCurrent(DateTime)
+     */
+    public synchronized void compact(DateTime now) throws IOException {
+        states.values().removeIf(state -> !state.isCurrent(now));
+        // Write the new file while the current log stays open, so a failure leaves the store usable.
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = openLog(temp, true)) {
+            for (Map.Entry<ValidationStateKey, ValidationState> entry : states.entrySet()) {
+                writePut(out, entry.getKey(), entry.getValue());
+            }
+        }
+        try {
+            log.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            log = openLog(file, false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    private static DataOutputStream openLog(Path file, boolean create) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(create
+                ? Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+                : Files.newOutputStream(file, StandardOpenOption.APPEND)));
+        if (create) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+        }
+        return out;
+    }
+
+    /**
+     * @return the length of the complete records in the file.
+     */
+    private long read() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            CountingInputStream counting = new CountingInputStream(new BufferedInputStream(in));
+            DataInputStream data = new DataInputStream(counting);
+            if (data.readInt() != MAGIC) {
+                throw new IOException(file + " is not a validation state file");
+            }
+            int version = data.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unsupported validation state file version " + version);
+            }
+
+            long end = counting.getCount();
+            while (true) {
+                try {
+                    int type = data.read();
+                    if (type == -1) {
+                        return end;
+                    }
+                    ValidationStateKey key = readKey(data);
+                    if (type == PUT) {
+                        states.put(key, readState(data));
+                    } else if (type == REMOVE) {
+                        states.remove(key);
+                    } else {
+                        return end;
+                    }
+                    end = counting.getCount();
+                } catch (EOFException | CorruptRecordException e) {
+                    // Drop the partly written record at the end of the log.
+                    return end;
+                }
+            }
+        }
+    }
+
+    private static void writePut(DataOutputStream out, ValidationStateKey key, ValidationState state) throws IOException {
+        out.writeByte(PUT);
+        writeKey(out, key);
+        out.writeLong(state.getValidatedAtMillis());
+        out.writeLong(state.getRecheckAtMillis());
+        out.writeInt(state.getChecks().size());
+        for (ValidationCheck check : state.getChecks()) {
+            out.writeByte(check.getStatus().ordinal());
+            writeString(out, check.getKey());
+            String[] params = check.getParams() == null ? new String[0] : check.getParams();
+            out.writeInt(params.length);
+            for (String param : params) {
+                writeString(out, param);
+            }
+        }
+    }
+
+    private static ValidationState readState(DataInputStream in) throws IOException {
+        long validatedAt = in.readLong();
+        long recheckAt = in.readLong();
+        int count = readCount(in);
+        List<ValidationCheck> checks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int status = in.readUnsignedByte();
+            if (status >= STATUSES.length) {
+                throw new CorruptRecordException();
+            }
+            String key = readString(in);
+            String[] params = new String[readCount(in)];
+            for (int j = 0; j < params.length; j++) {
+                params[j] = readString(in);
+            }
+            checks.add(new ValidationCheck(STATUSES[status], key, params));
+        }
+        return ValidationState.of(validatedAt, recheckAt, checks);
+    }
+
+    private static void writeKey(DataOutputStream out, ValidationStateKey key) throws IOException {
+        out.write(key.getObjectHash());
+        out.write(key.getContextHash());
+    }
+
+    private static ValidationStateKey readKey(DataInputStream in) throws IOException {
+        byte[] objectHash = new byte[ValidationStateKey.HASH_LENGTH];
+        byte[] contextHash = new byte[ValidationStateKey.HASH_LENGTH];
+        in.readFully(objectHash);
+        in.readFully(contextHash);
+        return ValidationStateKey.of(objectHash, contextHash);
+    }
+
+    private static void writeString(DataOutputStream out, @CheckForNull String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @CheckForNull
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[checkCount(length)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        return checkCount(in.readInt());
+    }
+
+    private static int checkCount(int count) throws CorruptRecordException {
+        // A record is never larger than the limit, so a larger count means the record is damaged.
+        if (count < 0 || count > (1 << 24)) {
+            throw new CorruptRecordException();
+        }
+        return count;
+    }
+
+    private static final class CorruptRecordException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,391 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.IpResourceRange;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import org.apache.commons.lang3.Validate;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Immutable set of IP resources in a sorted array of intervals, used for the effective resources of validation
+ * contexts.
+ * <p/>
+ * Every interval takes four longs: the first and last value as unsigned 128 bit numbers in a high and low word. The
+ * intervals are sorted by resource type ({@link IpResourceType#ASN}, {@link IpResourceType#IPv4},
+ * {@link IpResourceType#IPv6}) and start, and do not overlap or touch, so every set has a single representation.
+ * {@link #contains(ImmutableResourceSet)} and {@link #intersects(ImmutableResourceSet)} walk both arrays without
+ * allocating. Operations that create a set return one of their arguments when the result equals it, so the sets of
+ * parent and child validation contexts share their arrays in the common case of inherited or unchanged resources.
+ */
+public final class ImmutableResourceSet {
+
+    private static final IpResourceType[] TYPES = IpResourceType.values();
+
+    private static final int WORDS_PER_INTERVAL = 4;
+    private static final BigInteger LOW_WORD_MASK = BigInteger.ONE.shiftLeft(Long.SIZE).subtract(BigInteger.ONE);
+
+    private static final ImmutableResourceSet EMPTY = new ImmutableResourceSet(new long[0], new int[TYPES.length + 1]);
+
+    // Start high, start low, end high and end low word of every interval.
+    private final long[] bounds;
+
+    // The intervals of TYPES[t] are at the indexes offsets[t] (inclusive) to offsets[t + 1] (exclusive).
+    private final int[] offsets;
+
+    private final int hashCode;
+
+    private ImmutableResourceSet(long[] bounds, int[] offsets) {
+        this.bounds = bounds;
+        this.offsets = offsets;
+        this.hashCode = 31 * Arrays.hashCode(bounds) + Arrays.hashCode(offsets);
+    }
+
+    public static ImmutableResourceSet empty() {
+        return EMPTY;
+    }
+
+    public static ImmutableResourceSet of(IpResourceSet resources) {
+        if (resources.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder(16);
+        for (IpResource resource : resources) {
+            BigInteger start = resource.getStart().getValue();
+            BigInteger end = resource.getEnd().getValue();
+            builder.add(resource.getType().ordinal(),
+                    start.shiftRight(Long.SIZE).longValue(), start.longValue(),
+                    end.shiftRight(Long.SIZE).longValue(), end.longValue());
+        }
+        return builder.build();
+    }
+
+    public static ImmutableResourceSet parse(String s) {
+        return of(IpResourceSet.parse(s));
+    }
+
+    public boolean isEmpty() {
+        return bounds.length == 0;
+    }
+
+    public boolean containsType(IpResourceType type) {
+        return offsets[type.ordinal()] < offsets[type.ordinal() + 1];
+    }
+
+    /**
+     * @return the number of intervals in this set. Adjacent resources are merged into a single interval.
+     */
+    public int getIntervalCount() {
+        return bounds.length / WORDS_PER_INTERVAL;
+    }
+
+    /**
+     * @return true if every resource of <code>other</code> is in this set.
+     */
+    public boolean contains(ImmutableResourceSet other) {
+        if (this == other || other.isEmpty()) {
+            return true;
+        }
+        for (int t = 0; t < TYPES.length; t++) {
+            int i = offsets[t];
+            int thisEnd = offsets[t + 1];
+            for (int j = other.offsets[t]; j < other.offsets[t + 1]; j++) {
+                while (i < thisEnd && compareEndToStart(this, i, other, j) < 0) {
+                    i++;
+                }
+                if (i == thisEnd || compareStarts(this, i, other, j) > 0 || compareEnds(this, i, other, j) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if this set and <code>other</code> have a resource in common.
+     */
+    public boolean intersects(ImmutableResourceSet other) {
+        if (isEmpty() || other.isEmpty()) {
+            return false;
+        }
+        for (int t = 0; t < TYPES.length; t++) {
+            int i = offsets[t];
+            int j = other.offsets[t];
+            while (i < offsets[t + 1] && j < other.offsets[t + 1]) {
+                if (compareEndToStart(this, i, other, j) < 0) {
+                    i++;
+                } else if (compareEndToStart(other, j, this, i) < 0) {
+                    j++;
+                } else {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the resources of this set that are not in <code>other</code>. This is the same instance when the
+     * sets have no resources in common.
+     */
+    public ImmutableResourceSet difference(ImmutableResourceSet other) {
+        if (!intersects(other)) {
+            return this;
+        }
+        Builder builder = new Builder(getIntervalCount() + other.getIntervalCount());
+        for (int t = 0; t < TYPES.length; t++) {
+            int j = other.offsets[t];
+            int otherEnd = other.offsets[t + 1];
+            for (int i = offsets[t]; i < offsets[t + 1]; i++) {
+                int w = i * WORDS_PER_INTERVAL;
+                long currentHigh = bounds[w];
+                long currentLow = bounds[w + 1];
+                long endHigh = bounds[w + 2];
+                long endLow = bounds[w + 3];
+                while (j < otherEnd && compare(other.endHigh(j), other.endLow(j), currentHigh, currentLow) < 0) {
+                    j++;
+                }
+                boolean removed = false;
+                while (j < otherEnd && compare(other.startHigh(j), other.startLow(j), endHigh, endLow) <= 0) {
+                    if (compare(other.startHigh(j), other.startLow(j), currentHigh, currentLow) > 0) {
+                        long beforeHigh = other.startLow(j) == 0 ? other.startHigh(j) - 1 : other.startHigh(j);
+                        builder.add(t, currentHigh, currentLow, beforeHigh, other.startLow(j) - 1);
+                    }
+                    if (compare(other.endHigh(j), other.endLow(j), endHigh, endLow) >= 0) {
+                        // The interval of other may also cover the next interval of this set, so keep it.
+                        removed = true;
+                        break;
+                    }
+                    currentLow = other.endLow(j) + 1;
+                    currentHigh = currentLow == 0 ? other.endHigh(j) + 1 : other.endHigh(j);
+                    j++;
+                }
+                if (!removed) {
+                    builder.add(t, currentHigh, currentLow, endHigh, endLow);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the resources that are in this set or in <code>other</code>. This is one of the two instances when
+     * it contains the other.
+     */
+    public ImmutableResourceSet union(ImmutableResourceSet other) {
+        if (contains(other)) {
+            return this;
+        }
+        if (other.contains(this)) {
+            return other;
+        }
+        Builder builder = new Builder(getIntervalCount() + other.getIntervalCount());
+        for (int t = 0; t < TYPES.length; t++) {
+            int i = offsets[t];
+            int j = other.offsets[t];
+            while (i < offsets[t + 1] || j < other.offsets[t + 1]) {
+                if (j == other.offsets[t + 1] || (i < offsets[t + 1] && compareStarts(this, i, other, j) <= 0)) {
+                    builder.add(t, this, i++);
+                } else {
+                    builder.add(t, other, j++);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the resources of this set of the given types. This is the same instance when the set has no resources
+     * of other types.
+     */
+    public ImmutableResourceSet retainTypes(Set<IpResourceType> types) {
+        boolean retainsAll = true;
+        for (IpResourceType type : TYPES) {
+            retainsAll &= types.contains(type) || !containsType(type);
+        }
+        if (retainsAll) {
+            return this;
+        }
+        Builder builder = new Builder(getIntervalCount());
+        for (int t = 0; t < TYPES.length; t++) {
+            if (types.contains(TYPES[t])) {
+                for (int i = offsets[t]; i < offsets[t + 1]; i++) {
+                    builder.add(t, this, i);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return a new, mutable, copy of this set.
+     */
+    public IpResourceSet toIpResourceSet() {
+        IpResourceSet result = new IpResourceSet();
+        for (int t = 0; t < TYPES.length; t++) {
+            for (int i = offsets[t]; i < offsets[t + 1]; i++) {
+                result.add(IpResourceRange.assemble(toBigInteger(startHigh(i), startLow(i)), toBigInteger(endHigh(i), endLow(i)), TYPES[t]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ImmutableResourceSet that = (ImmutableResourceSet) obj;
+        return this.hashCode == that.hashCode && Arrays.equals(this.offsets, that.offsets) && Arrays.equals(this.bounds, that.bounds);
+    }
+
+    /**
+     * @return the resources in the same format as {@link IpResourceSet#toString()}.
+     */
+    @Override
+    public String toString() {
+        return toIpResourceSet().toString();
+    }
+
+    private long startHigh(int i) {
+        return bounds[i * WORDS_PER_INTERVAL];
+    }
+
+    private long startLow(int i) {
+        return bounds[i * WORDS_PER_INTERVAL + 1];
+    }
+
+    private long endHigh(int i) {
+        return bounds[i * WORDS_PER_INTERVAL + 2];
+    }
+
+    private long endLow(int i) {
+        return bounds[i * WORDS_PER_INTERVAL + 3];
+    }
+
+    private static int compareStarts(ImmutableResourceSet a, int i, ImmutableResourceSet b, int j) {
+        return compare(a.startHigh(i), a.startLow(i), b.startHigh(j), b.startLow(j));
+    }
+
+    private static int compareEnds(ImmutableResourceSet a, int i, ImmutableResourceSet b, int j) {
+        return compare(a.endHigh(i), a.endLow(i), b.endHigh(j), b.endLow(j));
+    }
+
+    private static int compareEndToStart(ImmutableResourceSet a, int i, ImmutableResourceSet b, int j) {
+        return compare(a.endHigh(i), a.endLow(i), b.startHigh(j), b.startLow(j));
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int result = Long.compareUnsigned(aHigh, bHigh);
+        return result != 0 ? result : Long.compareUnsigned(aLow, bLow);
+    }
+
+    private static BigInteger toBigInteger(long high, long low) {
+        BigInteger result = BigInteger.valueOf(low).and(LOW_WORD_MASK);
+        return high == 0 ? result : BigInteger.valueOf(high).and(LOW_WORD_MASK).shiftLeft(Long.SIZE).or(result);
+    }
+
+    /**
+     * Appends intervals in order of type and start, merging intervals that overlap or touch the previous one.
+     */
+    private static final class Builder {
+        private long[] bounds;
+        private final int[] offsets = new int[TYPES.length + 1];
+        private int count;
+        private int lastType = -1;
+
+        private Builder(int expectedIntervals) {
+            this.bounds = new long[Math.max(expectedIntervals, 1) * WORDS_PER_INTERVAL];
+        }
+
+        private void add(int type, ImmutableResourceSet set, int i) {
+            add(type, set.startHigh(i), set.startLow(i), set.endHigh(i), set.endLow(i));
+        }
+
+        private void add(int type, long startHigh, long startLow, long endHigh, long endLow) {
+            Validate.isTrue(type >= lastType, "resources must be added in order of type");
+            if (type == lastType) {
+                int w = (count - 1) * WORDS_PER_INTERVAL;
+                Validate.isTrue(compare(startHigh, startLow, bounds[w], bounds[w + 1]) >= 0, "resources must be added in order of start");
+                if (compare(startHigh, startLow, bounds[w + 2], bounds[w + 3]) <= 0 || isSuccessor(bounds[w + 2], bounds[w + 3], startHigh, startLow)) {
+                    if (compare(endHigh, endLow, bounds[w + 2], bounds[w + 3]) > 0) {
+                        bounds[w + 2] = endHigh;
+                        bounds[w + 3] = endLow;
+                    }
+                    return;
+                }
+            } else {
+                for (int t = lastType + 1; t <= type; t++) {
+                    offsets[t] = count;
+                }
+                lastType = type;
+            }
+            if ((count + 1) * WORDS_PER_INTERVAL > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            int w = count * WORDS_PER_INTERVAL;
+            bounds[w] = startHigh;
+            bounds[w + 1] = startLow;
+            bounds[w + 2] = endHigh;
+            bounds[w + 3] = endLow;
+            count++;
+        }
+
+        private static boolean isSuccessor(long high, long low, long nextHigh, long nextLow) {
+            if (low != -1L) {
+                return nextHigh == high && nextLow == low + 1;
+            }
+            return high != -1L && nextLow == 0 && nextHigh == high + 1;
+        }
+
+        private ImmutableResourceSet build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            for (int t = lastType + 1; t <= TYPES.length; t++) {
+                offsets[t] = count;
+            }
+            return new ImmutableResourceSet(Arrays.copyOf(bounds, count * WORDS_PER_INTERVAL), offsets);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the moments at which validated objects have to be checked again, so a validator can re-check only the
+ * objects of which a time based check changes instead of validating everything again.
+ * <p/>
+ * The scheduler does not run anything itself: the validator asks for the {@link #getNextDeadline() next deadline},
+ * waits until then (for example using a {@link java.util.concurrent.ScheduledExecutorService}) and
+ * {@link #pollDue(DateTime) takes the objects} that are due. This class is thread-safe.
+ *
+ * @param <K> the type identifying an object, such as its URI.
+ */
+public class RecheckScheduler<K> {
+
+    private final Map<K, Deadline<K>> deadlines = new HashMap<>();
+
+    // Contains outdated deadlines of rescheduled keys, which are skipped when polled.
+    private final PriorityQueue<Deadline<K>> queue = new PriorityQueue<>();
+
+    private long sequence;
+
+    /**
+     * Schedules a re-check of the object at its {@link StatusChangeTimes#nextStatusChangeTime next status change},
+     * replacing an earlier deadline for the key.
+     *
+     * @return the deadline, or {@code null} if the status of the object does not change anymore.
+     */
+    @CheckForNull
+    public DateTime schedule(K key, CertificateRepositoryObject object, ValidationOptions options, DateTime now) {
+        DateTime deadline = StatusChangeTimes.nextStatusChangeTime(object, options, now);
+        schedule(key, deadline);
+        return deadline;
+    }
+
+    /**
+     * Schedules a re-check at the deadline, replacing an earlier deadline for the key. A {@code null} deadline
+     * cancels the re-check.
+     */
+    public synchronized void schedule(K key, @CheckForNull DateTime deadline) {
+        if (deadline == null) {
+            deadlines.remove(key);
+            return;
+        }
+        Deadline<K> scheduled = new Deadline<>(key, deadline.getMillis(), sequence++);
+        deadlines.put(key, scheduled);
+        queue.add(scheduled);
+        if (queue.size() > 2 * deadlines.size() + 16) {
+            queue.clear();
+            queue.addAll(deadlines.values());
+        }
+    }
+
+    public synchronized void cancel(K key) {
+        deadlines.remove(key);
+    }
+
+    /**
+     * @return the deadline of the key, or {@code null} if no re-check is scheduled.
+     */
+    @CheckForNull
+    public synchronized DateTime getDeadline(K key) {
+        Deadline<K> scheduled = deadlines.get(key);
+        return scheduled == null ? null : new DateTime(scheduled.millis, DateTimeZone.UTC);
+    }
+
+    /**
+     * @return the earliest deadline, or {@code null} if no re-checks are scheduled.
+     */
+    @CheckForNull
+    public synchronized DateTime getNextDeadline() {
+        Deadline<K> next = peek();
+        return next == null ? null : new DateTime(next.millis, DateTimeZone.UTC);
+    }
+
+    /**
+     * Removes the keys of which the deadline is not after {@code now}.
+     *
+     * @return the keys that are due, in the order of their deadlines.
+     */
+    public synchronized List<K> pollDue(DateTime now) {
+        List<K> due = new ArrayList<>();
+        Deadline<K> next;
+        while ((next = peek()) != null && next.millis <= now.getMillis()) {
+            queue.poll();
+            deadlines.remove(next.key);
+            due.add(next.key);
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    private Deadline<K> peek() {
+        Deadline<K> next;
+        while ((next = queue.peek()) != null && deadlines.get(next.key) != next) {
+            queue.poll();
+        }
+        return next;
+    }
+
+    private static final class Deadline<K> implements Comparable<Deadline<K>> {
+        private final K key;
+        private final long millis;
+        private final long sequence;
+
+        private Deadline(K key, long millis, long sequence) {
+            this.key = key;
+            this.millis = millis;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Deadline<K> that) {
+            int result = Long.compare(millis, that.millis);
+            return result != 0 ? result : Long.compare(sequence, that.sequence);
+        }
+    }
+}
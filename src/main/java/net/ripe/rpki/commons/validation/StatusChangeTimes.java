@@ -0,0 +1,118 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.cms.RpkiSignedObject;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapper;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Finds the moments at which the time based checks of an object change their outcome, so that a validated object
+ * only has to be checked again at that moment instead of on every validation run.
+ * <p/>
+ * The checks are those of the certificate validity period (also of the EE certificate of signed objects), of the
+ * this and next update times of CRLs and manifests, and of the grace periods of {@link ValidationOptions}. A check
+ * comparing with "now" changes at the first millisecond where the comparison has the other outcome: a certificate is
+ * still valid at its not valid after time, and expired a millisecond later.
+ */
+public final class StatusChangeTimes {
+
+    private StatusChangeTimes() {
+        // Utility classes should not have a public or default constructor.
+    }
+
+    /**
+     * @return the first moment after {@code now} at which a time based check of the object may have another
+     * outcome, or {@code null} if no time based check changes after {@code now}.
+     */
+    @CheckForNull
+    public static DateTime nextStatusChangeTime(CertificateRepositoryObject object, ValidationOptions options, DateTime now) {
+        Earliest earliest = new Earliest(now);
+        if (object instanceof AbstractX509CertificateWrapper) {
+            addValidityPeriod(earliest, ((AbstractX509CertificateWrapper) object).getValidityPeriod());
+        } else if (object instanceof RpkiSignedObject) {
+            addValidityPeriod(earliest, ((RpkiSignedObject) object).getValidityPeriod());
+            if (object instanceof ManifestCms) {
+                ManifestCms manifest = (ManifestCms) object;
+                addUpdateTimes(earliest, manifest.getThisUpdateTime(), manifest.getNextUpdateTime(), options.isStrictManifestCRLValidityChecks(), options.getManifestMaxStalePeriod());
+            }
+        } else if (object instanceof X509Crl) {
+            X509Crl crl = (X509Crl) object;
+            addUpdateTimes(earliest, crl.getThisUpdateTime(), crl.getNextUpdateTime(), options.isStrictManifestCRLValidityChecks(), options.getCrlMaxStalePeriod());
+        }
+        return earliest.result;
+    }
+
+    /**
+     * @return the earliest of the two moments, ignoring {@code null}.
+     */
+    @CheckForNull
+    public static DateTime earliest(@CheckForNull DateTime a, @CheckForNull DateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static void addValidityPeriod(Earliest earliest, ValidityPeriod validityPeriod) {
+        earliest.add(validityPeriod.getNotValidBefore());
+        earliest.add(validityPeriod.getNotValidAfter().plusMillis(1));
+    }
+
+    private static void addUpdateTimes(Earliest earliest, DateTime thisUpdateTime, DateTime nextUpdateTime, boolean strict, Duration maxStalePeriod) {
+        earliest.add(thisUpdateTime);
+        earliest.add(nextUpdateTime.plusMillis(1));
+        if (strict) {
+            earliest.add(nextUpdateTime.plus(maxStalePeriod).plusMillis(1));
+        }
+    }
+
+    private static final class Earliest {
+        private final DateTime now;
+        private DateTime result;
+
+        private Earliest(DateTime now) {
+            this.now = now;
+        }
+
+        private void add(DateTime candidate) {
+            if (candidate.isAfter(now)) {
+                result = earliest(result, candidate);
+            }
+        }
+    }
+}
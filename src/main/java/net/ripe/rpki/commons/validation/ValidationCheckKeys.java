@@ -0,0 +1,79 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns validation check keys as small integer codes, so results can store a check as an <code>int</code>
+ * instead of as a {@link ValidationCheck} instance. The codes are only valid within the running JVM and must
+ * never be serialized.
+ * <p>
+ * Check keys are expected to be the constants from {@link ValidationString}, so the registry is never cleaned up.
+ */
+final class ValidationCheckKeys {
+
+    private static final ConcurrentMap<String, Integer> CODES = new ConcurrentHashMap<>();
+
+    private static volatile String[] keys = new String[256];
+
+    private static int size;
+
+    private ValidationCheckKeys() {
+        // Utility classes should not have a public or default constructor.
+    }
+
+    static int code(String key) {
+        Integer code = CODES.get(key);
+        if (code != null) {
+            return code;
+        }
+        synchronized (ValidationCheckKeys.class) {
+            code = CODES.get(key);
+            if (code == null) {
+                String[] current = keys;
+                if (size == current.length) {
+                    current = Arrays.copyOf(current, size * 2);
+                }
+                current[size] = key;
+                keys = current;
+                code = size++;
+                CODES.put(key, code);
+            }
+            return code;
+        }
+    }
+
+    static String key(int code) {
+        return keys[code];
+    }
+}
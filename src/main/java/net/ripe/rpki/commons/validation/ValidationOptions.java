@@ -30,8 +30,13 @@
 package net.ripe.rpki.commons.validation;
 
 
+import net.ripe.rpki.commons.crypto.x509cert.SignatureVerificationCache;
+import net.ripe.rpki.commons.util.UTC;
+import org.joda.time.DateTime;
 import org.joda.time.Duration;
 
+import javax.annotation.CheckForNull;
+
 /**
  * User controlled options to use when validating objects.
  */
@@ -66,6 +71,17 @@ public class ValidationOptions {
      */
     private boolean allowOverclaimParentChild = false;
 
+    /**
+     * When set, the signatures of certificates that were verified before with the same issuer key are not verified
+     * again.
+     */
+    private SignatureVerificationCache signatureVerificationCache;
+
+    /**
+     * The moment all time based checks compare with. When not set, every check uses the current time.
+     */
+    private DateTime validationTime;
+
     private ValidationOptions(Boolean strictManifestCRLValidityChecks, Duration crlMaxStalePeriod,
                               Duration manifestMaxStalePeriod) {
         this.strictManifestCRLValidityChecks = strictManifestCRLValidityChecks;
@@ -73,6 +89,13 @@ public class ValidationOptions {
         this.manifestMaxStalePeriod = manifestMaxStalePeriod;
     }
 
+    private ValidationOptions(ValidationOptions that) {
+        this(that.strictManifestCRLValidityChecks, that.crlMaxStalePeriod, that.manifestMaxStalePeriod);
+        this.allowOverclaimParentChild = that.allowOverclaimParentChild;
+        this.signatureVerificationCache = that.signatureVerificationCache;
+        this.validationTime = that.validationTime;
+    }
+
     /**
      * Validate manifest in a strict way, i.e. the whole manifest is considered invalid if any of the references
      * on it are not found in the downloaded data or cache. Set grace periods to 0.
@@ -122,6 +145,53 @@ public class ValidationOptions {
         this.allowOverclaimParentChild = allowOverclaimParentChild;
     }
 
+    public SignatureVerificationCache getSignatureVerificationCache() {
+        return signatureVerificationCache;
+    }
+
+    public void setSignatureVerificationCache(SignatureVerificationCache signatureVerificationCache) {
+        this.signatureVerificationCache = signatureVerificationCache;
+    }
+
+    /**
+     * @return the moment time based checks compare with: the validation time when set, otherwise the current time.
+     * Callers that do several checks should use {@link #withFixedValidationTime()} first.
+     */
+    public DateTime getValidationTime() {
+        DateTime result = validationTime;
+        return result != null ? result : UTC.dateTime();
+    }
+
+    public boolean hasValidationTime() {
+        return validationTime != null;
+    }
+
+    /**
+     * @return these options when the validation time is set, otherwise a copy that validates at the current time, so
+     * that all checks done with the returned options compare with the same moment. Fixing the time once before
+     * validating many objects avoids a copy for every object.
+     */
+    public ValidationOptions withFixedValidationTime() {
+        return hasValidationTime() ? this : withValidationTime(UTC.dateTime());
+    }
+
+    /**
+     * Validates at the given moment instead of the current time, for example to evaluate a whole validation run at
+     * the same moment or to repeat a validation run of the past. {@code null} uses the current time again.
+     */
+    public void setValidationTime(@CheckForNull DateTime validationTime) {
+        this.validationTime = validationTime;
+    }
+
+    /**
+     * @return a copy of these options that validates at the given moment.
+     */
+    public ValidationOptions withValidationTime(DateTime validationTime) {
+        ValidationOptions result = new ValidationOptions(this);
+        result.setValidationTime(validationTime);
+        return result;
+    }
+
     public boolean isStrictManifestCRLValidityChecks() {
         return strictManifestCRLValidityChecks;
     }
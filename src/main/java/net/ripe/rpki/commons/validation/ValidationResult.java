@@ -34,9 +34,13 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.joda.time.DateTimeUtils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -59,6 +63,8 @@ public final class ValidationResult implements Serializable {
 
     private boolean storingPassingChecks = true;
 
+    private boolean compactStorage = false;
+
     private ValidationResult(ValidationLocation location) {
         setLocation(location);
     }
@@ -79,7 +85,7 @@ public final class ValidationResult implements Serializable {
         if (this.storingPassingChecks) {
             this.storingPassingChecks = false;
             for (ResultsPerLocation entry : this.results.values()) {
-                entry.passed.clear();
+                entry.clearPassed();
             }
         }
         return this;
@@ -89,13 +95,42 @@ public final class ValidationResult implements Serializable {
         return storingPassingChecks;
     }
 
+    /**
+     * Stores passed checks as interned key codes with their unformatted parameters instead of as
+     * {@link ValidationCheck} instances. Passed checks are only turned into {@link ValidationCheck} instances when
+     * they are read, which makes this mode suitable for validating large repositories while keeping passing checks.
+     * Failures and warnings are stored as before.
+     */
+    public ValidationResult withCompactStorage() {
+        if (!this.compactStorage) {
+            this.compactStorage = true;
+            for (ResultsPerLocation entry : this.results.values()) {
+                entry.compact();
+            }
+        }
+        return this;
+    }
+
+    public boolean isCompactStorage() {
+        return compactStorage;
+    }
+
     public ValidationResult setLocation(ValidationLocation location) {
         currentLocation = location;
         return this;
     }
 
     private ResultsPerLocation getCurrentResults() {
-        return results.computeIfAbsent(currentLocation, (x) -> new ResultsPerLocation());
+        return getResults(currentLocation);
+    }
+
+    private ResultsPerLocation getResults(ValidationLocation location) {
+        ResultsPerLocation resultsPerLocation = results.get(location);
+        if (resultsPerLocation == null) {
+            resultsPerLocation = new ResultsPerLocation(compactStorage);
+            results.put(location, resultsPerLocation);
+        }
+        return resultsPerLocation;
     }
 
     public ValidationResult pass(String key) {
@@ -104,7 +139,20 @@ public final class ValidationResult implements Serializable {
 
     public ValidationResult pass(String key, String... param) {
         if (storingPassingChecks) {
-            getCurrentResults().passed.add(new ValidationCheck(ValidationStatus.PASSED, key, param));
+            getCurrentResults().addPassed(key, param);
+        }
+        return this;
+    }
+
+    /**
+     * Like {@link #pass(String, String...)}, but the parameters are converted to strings using
+     * {@link String#valueOf(Object)} only when the check is stored. This avoids formatting parameters of passed
+     * checks when passing checks are not stored, or when they are stored using {@link #withCompactStorage()}.
+     * Parameters should therefore be immutable.
+     */
+    public ValidationResult pass(String key, Object... param) {
+        if (storingPassingChecks) {
+            getCurrentResults().addPassed(key, param);
         }
         return this;
     }
@@ -118,6 +166,10 @@ public final class ValidationResult implements Serializable {
         return this;
     }
 
+    public ValidationResult warn(String key, Object... param) {
+        return warn(key, format(param));
+    }
+
     public ValidationResult error(String key) {
         return error(key, EMPTY_PARAM);
     }
@@ -127,6 +179,24 @@ public final class ValidationResult implements Serializable {
         return this;
     }
 
+    public ValidationResult error(String key, Object... param) {
+        return error(key, format(param));
+    }
+
+    /**
+     * Records a check for the current location that was recorded before, for example for another location.
+     */
+    public ValidationResult add(ValidationCheck check) {
+        switch (check.getStatus()) {
+            case PASSED:
+                return pass(check.getKey(), check.getParams());
+            case WARNING:
+                return warn(check.getKey(), check.getParams());
+            default:
+                return error(check.getKey(), check.getParams());
+        }
+    }
+
     public boolean warnIfFalse(boolean condition, String key) {
         return warnIfFalse(condition, key, EMPTY_PARAM);
     }
@@ -145,10 +215,28 @@ public final class ValidationResult implements Serializable {
         return warnIfTrue(condition, key, EMPTY_PARAM);
     }
 
+    /**
+     * Like {@link #warnIfFalse(boolean, String, String...)}, but the parameters are only converted to strings when
+     * the check is stored, see {@link #pass(String, Object...)}.
+     */
+    public boolean warnIfFalse(boolean condition, String key, Object... param) {
+        Validate.notNull(key, "key is required");
+        if (condition) {
+            pass(key, param);
+        } else {
+            warn(key, param);
+        }
+        return condition;
+    }
+
     public boolean warnIfTrue(boolean condition, String key, String... param) {
         return warnIfFalse(!condition, key, param);
     }
 
+    public boolean warnIfTrue(boolean condition, String key, Object... param) {
+        return warnIfFalse(!condition, key, param);
+    }
+
     public boolean warnIfNull(Object object, String key) {
         return warnIfNull(object, key, EMPTY_PARAM);
     }
@@ -170,7 +258,7 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationResult rejectForLocation(ValidationLocation location, String key, String... param) {
-        ResultsPerLocation resultsPerLocation = results.computeIfAbsent(location, (x) -> new ResultsPerLocation());
+        ResultsPerLocation resultsPerLocation = getResults(location);
         resultsPerLocation.error.add(new ValidationCheck(ValidationStatus.ERROR, key, param));
         return this;
     }
@@ -180,7 +268,7 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationResult warnForLocation(ValidationLocation location, String key, String... param) {
-        ResultsPerLocation resultsPerLocation = results.computeIfAbsent(location, (x) -> new ResultsPerLocation());
+        ResultsPerLocation resultsPerLocation = getResults(location);
         resultsPerLocation.warning.add(new ValidationCheck(ValidationStatus.WARNING, key, param));
         return this;
     }
@@ -203,10 +291,28 @@ public final class ValidationResult implements Serializable {
         return rejectIfTrue(condition, key, EMPTY_PARAM);
     }
 
+    /**
+     * Like {@link #rejectIfFalse(boolean, String, String...)}, but the parameters are only converted to strings when
+     * the check is stored, see {@link #pass(String, Object...)}.
+     */
+    public boolean rejectIfFalse(boolean condition, String key, Object... param) {
+        Validate.notNull(key, "key is required");
+        if (condition) {
+            pass(key, param);
+        } else {
+            error(key, param);
+        }
+        return condition;
+    }
+
     public boolean rejectIfTrue(boolean condition, String key, String... param) {
         return rejectIfFalse(!condition, key, param);
     }
 
+    public boolean rejectIfTrue(boolean condition, String key, Object... param) {
+        return rejectIfFalse(!condition, key, param);
+    }
+
     public boolean rejectIfNull(Object object, String key) {
         return rejectIfNull(object, key, EMPTY_PARAM);
     }
@@ -312,7 +418,7 @@ public final class ValidationResult implements Serializable {
         if (resultsPerLocation != null) {
             allChecks.addAll(resultsPerLocation.error);
             allChecks.addAll(resultsPerLocation.warning);
-            allChecks.addAll(resultsPerLocation.passed);
+            resultsPerLocation.addPassedTo(allChecks);
         }
 
         return allChecks;
@@ -348,38 +454,270 @@ public final class ValidationResult implements Serializable {
     public ValidationResult addAll(ValidationResult that) {
         for (Entry<ValidationLocation, ResultsPerLocation> resultsByLocation : that.results.entrySet()) {
             ResultsPerLocation thatResults = resultsByLocation.getValue();
-            if (thatResults.error.isEmpty() && thatResults.warning.isEmpty() && (thatResults.passed.isEmpty() || !this.storingPassingChecks)) {
+            if (thatResults.error.isEmpty() && thatResults.warning.isEmpty() && (thatResults.passedCount() == 0 || !this.storingPassingChecks)) {
                 continue;
             }
 
-            ResultsPerLocation thisResults = results.computeIfAbsent(resultsByLocation.getKey(), (x) -> new ResultsPerLocation());
+            ResultsPerLocation thisResults = getResults(resultsByLocation.getKey());
             thisResults.error.addAll(thatResults.error);
             thisResults.warning.addAll(thatResults.warning);
             if (this.storingPassingChecks) {
-                thisResults.passed.addAll(thatResults.passed);
+                thisResults.addPassedFrom(thatResults);
             }
         }
         return this;
     }
 
+    private static String[] format(Object[] param) {
+        if (param == null) {
+            return EMPTY_PARAM;
+        }
+        if (param instanceof String[]) {
+            return (String[]) param;
+        }
+        String[] formatted = new String[param.length];
+        for (int i = 0; i < param.length; i++) {
+            formatted[i] = String.valueOf(param[i]);
+        }
+        return formatted;
+    }
+
+    /**
+     * Creates an empty result at the current location of this result, with the same settings for storing passed
+     * checks. Use this to give every concurrent worker its own result, and {@link #join(ValidationResult)} the
+     * results of the workers when they are done.
+     */
+    public synchronized ValidationResult fork() {
+        ValidationResult forked = new ValidationResult(currentLocation);
+        forked.storingPassingChecks = this.storingPassingChecks;
+        forked.compactStorage = this.compactStorage;
+        return forked;
+    }
+
+    /**
+     * Adds the checks and metrics of a forked result to this result. Unlike {@link #addAll(ValidationResult)} this
+     * takes over the checks of locations that are not yet present in this result instead of copying them, and
+     * empties the forked result, which should not be used afterwards.
+     * <p>
+     * Workers may join their results concurrently, but this result must not be modified by other means while that
+     * happens. The order of the checks for a location that is present in more than one result depends on the order
+     * of joining.
+     */
+    public ValidationResult join(ValidationResult forked) {
+        Validate.isTrue(forked != this, "cannot join a result with itself");
+        // Take the checks out of the forked result before locking this result, so only one lock is held at a time
+        // and joining two results into each other from different threads cannot deadlock.
+        Map<ValidationLocation, ResultsPerLocation> forkedResults;
+        Map<ValidationLocation, List<ValidationMetric>> forkedMetrics;
+        synchronized (forked) {
+            forkedResults = forked.results;
+            forkedMetrics = forked.metrics;
+            forked.results = new TreeMap<>();
+            forked.metrics = new TreeMap<>();
+        }
+        merge(forkedResults, forkedMetrics);
+        return this;
+    }
+
+    private synchronized void merge(Map<ValidationLocation, ResultsPerLocation> forkedResults, Map<ValidationLocation, List<ValidationMetric>> forkedMetrics) {
+        for (ResultsPerLocation resultsPerLocation : forkedResults.values()) {
+            if (!storingPassingChecks) {
+                resultsPerLocation.clearPassed();
+            } else if (compactStorage) {
+                resultsPerLocation.compact();
+            }
+        }
+
+        if (results.isEmpty()) {
+            // Linear time for sorted maps.
+            results.putAll(forkedResults);
+        } else {
+            for (Entry<ValidationLocation, ResultsPerLocation> entry : forkedResults.entrySet()) {
+                ResultsPerLocation thisResults = results.get(entry.getKey());
+                if (thisResults == null) {
+                    results.put(entry.getKey(), entry.getValue());
+                } else {
+                    ResultsPerLocation thatResults = entry.getValue();
+                    thisResults.error.addAll(thatResults.error);
+                    thisResults.warning.addAll(thatResults.warning);
+                    thisResults.addPassedFrom(thatResults);
+                }
+            }
+        }
+
+        for (Entry<ValidationLocation, List<ValidationMetric>> entry : forkedMetrics.entrySet()) {
+            List<ValidationMetric> thisMetrics = metrics.get(entry.getKey());
+            if (thisMetrics == null) {
+                metrics.put(entry.getKey(), entry.getValue());
+            } else {
+                thisMetrics.addAll(entry.getValue());
+            }
+        }
+    }
+
     private static final class ResultsPerLocation implements Serializable {
         private static final long serialVersionUID = 1L;
 
+        // Average of 12-13 passed checks per location (min = 1, max = 18) as of 2020-07-08 on RIPE NCC trust anchor,
+        // we use a slightly higher initial capacity to avoid re-sizing.
+        private static final int PASSED_CAPACITY = 20;
+
         final List<ValidationCheck> error = new ArrayList<>();
 
         final List<ValidationCheck> warning = new ArrayList<>();
 
-        // Average of 12-13 passed checks per location (min = 1, max = 18) as of 2020-07-08 on RIPE NCC trust anchor,
-        // we use a slightly higher initial capacity to avoid re-sizing.
-        final List<ValidationCheck> passed = new ArrayList<>(20);
+        final List<ValidationCheck> passed;
+
+        // Only used with compact storage, the passed list stays empty in that case.
+        CompactChecks compactPassed;
+
+        ResultsPerLocation(boolean compact) {
+            if (compact) {
+                passed = new ArrayList<>();
+                compactPassed = new CompactChecks();
+            } else {
+                passed = new ArrayList<>(PASSED_CAPACITY);
+            }
+        }
+
+        void compact() {
+            if (compactPassed == null) {
+                compactPassed = new CompactChecks();
+                for (ValidationCheck check : passed) {
+                    compactPassed.add(check.getKey(), check.getParams());
+                }
+                passed.clear();
+            }
+        }
+
+        void addPassed(String key, Object[] param) {
+            if (compactPassed != null) {
+                compactPassed.add(key, param);
+            } else {
+                passed.add(new ValidationCheck(ValidationStatus.PASSED, key, format(param)));
+            }
+        }
+
+        void addPassedFrom(ResultsPerLocation that) {
+            if (that.compactPassed != null) {
+                if (compactPassed != null) {
+                    compactPassed.addAll(that.compactPassed);
+                } else {
+                    that.compactPassed.addTo(passed);
+                }
+            }
+            for (ValidationCheck check : that.passed) {
+                addPassed(check.getKey(), check.getParams());
+            }
+        }
+
+        void addPassedTo(List<ValidationCheck> target) {
+            target.addAll(passed);
+            if (compactPassed != null) {
+                compactPassed.addTo(target);
+            }
+        }
+
+        int passedCount() {
+            return passed.size() + (compactPassed == null ? 0 : compactPassed.size());
+        }
+
+        void clearPassed() {
+            passed.clear();
+            if (compactPassed != null) {
+                compactPassed.clear();
+            }
+        }
 
         @Override
         public String toString() {
+            List<ValidationCheck> allPassed = new ArrayList<>(passedCount());
+            addPassedTo(allPassed);
             return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
                     .append("error", error)
                     .append("warning", warning)
-                    .append("passed", passed)
+                    .append("passed", allPassed)
                     .toString();
         }
     }
+
+    /**
+     * Passed checks as parallel arrays of interned key codes and parameters. Parameters are kept as the objects
+     * passed in and are only converted to strings when the checks are read. The key codes are local to the JVM, so
+     * the checks are serialized with their keys and formatted parameters.
+     */
+    private static final class CompactChecks implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private transient int[] keys;
+
+        // Allocated when the first check with parameters is added, most checks do not have any.
+        private transient Object[][] params;
+
+        private transient int size;
+
+        CompactChecks() {
+            keys = new int[ResultsPerLocation.PASSED_CAPACITY];
+        }
+
+        void add(String key, Object[] param) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                if (params != null) {
+                    params = Arrays.copyOf(params, size * 2);
+                }
+            }
+            keys[size] = ValidationCheckKeys.code(key);
+            if (param != null && param.length > 0) {
+                if (params == null) {
+                    params = new Object[keys.length][];
+                }
+                params[size] = param;
+            }
+            size++;
+        }
+
+        void addAll(CompactChecks that) {
+            for (int i = 0; i < that.size; i++) {
+                add(ValidationCheckKeys.key(that.keys[i]), that.params == null ? null : that.params[i]);
+            }
+        }
+
+        void addTo(List<ValidationCheck> target) {
+            for (int i = 0; i < size; i++) {
+                target.add(new ValidationCheck(ValidationStatus.PASSED, ValidationCheckKeys.key(keys[i]), formattedParams(i)));
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+            params = null;
+        }
+
+        private String[] formattedParams(int index) {
+            return format(params == null ? null : params[index]);
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeUTF(ValidationCheckKeys.key(keys[i]));
+                out.writeObject(formattedParams(i));
+            }
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            int count = in.readInt();
+            keys = new int[Math.max(count, 1)];
+            for (int i = 0; i < count; i++) {
+                add(in.readUTF(), (String[]) in.readObject());
+            }
+        }
+    }
 }
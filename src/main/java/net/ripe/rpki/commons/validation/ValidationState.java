@@ -0,0 +1,135 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import org.apache.commons.lang3.Validate;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of the validation of an object: the warnings and failures for its location, when it was validated
+ * and until when the outcome can be reused. Passed checks are not kept, so a reused outcome only reports the
+ * warnings and failures.
+ */
+public final class ValidationState {
+
+    private final long validatedAt;
+    private final long recheckAt;
+    private final List<ValidationCheck> checks;
+
+    private ValidationState(long validatedAt, long recheckAt, List<ValidationCheck> checks) {
+        this.validatedAt = validatedAt;
+        this.recheckAt = recheckAt;
+        this.checks = Collections.unmodifiableList(checks);
+    }
+
+    /**
+     * @param checks    the checks of the object, passed checks are ignored.
+     * @param recheckAt the moment a time based check may change the outcome, or {@code null} if the outcome does not
+     *                  depend on time.
+     */
+    public static ValidationState of(List<ValidationCheck> checks, DateTime validatedAt, @CheckForNull DateTime recheckAt) {
+        Validate.notNull(validatedAt);
+        List<ValidationCheck> kept = new ArrayList<>();
+        for (ValidationCheck check : checks) {
+            if (check.getStatus() != ValidationStatus.PASSED) {
+                kept.add(check);
+            }
+        }
+        return new ValidationState(validatedAt.getMillis(), recheckAt == null ? Long.MAX_VALUE : recheckAt.getMillis(), kept);
+    }
+
+    /**
+     * @return the outcome of the checks of the location in the validation result.
+     */
+    public static ValidationState of(ValidationResult result, ValidationLocation location, DateTime validatedAt, @CheckForNull DateTime recheckAt) {
+        List<ValidationCheck> checks = new ArrayList<>(result.getFailures(location));
+        checks.addAll(result.getWarnings(location));
+        return of(checks, validatedAt, recheckAt);
+    }
+
+    static ValidationState of(long validatedAt, long recheckAt, List<ValidationCheck> checks) {
+        return new ValidationState(validatedAt, recheckAt, checks);
+    }
+
+    public DateTime getValidatedAt() {
+        return new DateTime(validatedAt, DateTimeZone.UTC);
+    }
+
+    @CheckForNull
+    public DateTime getRecheckAt() {
+        return recheckAt == Long.MAX_VALUE ? null : new DateTime(recheckAt, DateTimeZone.UTC);
+    }
+
+    long getValidatedAtMillis() {
+        return validatedAt;
+    }
+
+    long getRecheckAtMillis() {
+        return recheckAt;
+    }
+
+    /**
+     * @return the warnings and failures of the object.
+     */
+    public List<ValidationCheck> getChecks() {
+        return checks;
+    }
+
+    public boolean hasFailures() {
+        for (ValidationCheck check : checks) {
+            if (!check.isOk()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true when the outcome can still be used at the moment.
+     */
+    public boolean isCurrent(DateTime now) {
+        return now.getMillis() >= validatedAt && now.getMillis() < recheckAt;
+    }
+
+    /**
+     * Adds the checks of the outcome to the current location of the validation result.
+     */
+    public void addChecksTo(ValidationResult result) {
+        for (ValidationCheck check : checks) {
+            result.add(check);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+
+/**
+ * Identifies the inputs of the validation of an object: the SHA-256 hash of the object and a SHA-256 hash of the
+ * context it was validated in, such as its issuer, the resources of the issuer and the manifest it is listed on.
+ */
+public final class ValidationStateKey {
+
+    public static final int HASH_LENGTH = 32;
+
+    private final byte[] objectHash;
+    private final byte[] contextHash;
+    private final int hashCode;
+
+    private ValidationStateKey(byte[] objectHash, byte[] contextHash) {
+        this.objectHash = objectHash;
+        this.contextHash = contextHash;
+        this.hashCode = 31 * Arrays.hashCode(objectHash) + Arrays.hashCode(contextHash);
+    }
+
+    public static ValidationStateKey of(byte[] objectHash, byte[] contextHash) {
+        Validate.isTrue(objectHash.length == HASH_LENGTH, "object hash must be a SHA-256 hash");
+        Validate.isTrue(contextHash.length == HASH_LENGTH, "context hash must be a SHA-256 hash");
+        return new ValidationStateKey(objectHash.clone(), contextHash.clone());
+    }
+
+    public byte[] getObjectHash() {
+        return objectHash.clone();
+    }
+
+    public byte[] getContextHash() {
+        return contextHash.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ValidationStateKey)) {
+            return false;
+        }
+        ValidationStateKey that = (ValidationStateKey) obj;
+        return Arrays.equals(objectHash, that.objectHash) && Arrays.equals(contextHash, that.contextHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import javax.annotation.CheckForNull;
+import java.util.Set;
+
+/**
+ * Keeps the outcomes of earlier validations, so that objects of which the inputs did not change do not have to be
+ * validated again. Implementations must be thread-safe.
+ *
+ * @see InMemoryValidationStateStore
+ * @see FileValidationStateStore
+ */
+public interface ValidationStateStore {
+
+    /**
+     * @return the last outcome stored for the key, or {@code null} if there is none.
+     */
+    @CheckForNull
+    ValidationState get(ValidationStateKey key);
+
+    /**
+     * Stores the outcome, replacing the outcome stored before for the key.
+     */
+    void put(ValidationStateKey key, ValidationState state);
+
+    /**
+     * Removes the outcome stored for the key, if any.
+     */
+    void remove(ValidationStateKey key);
+
+    /**
+     * Removes the outcomes of all keys that are not in the set, for example the keys that were not used in the last
+     * validation run.
+     */
+    void retainAll(Set<ValidationStateKey> keys);
+
+    int size();
+}
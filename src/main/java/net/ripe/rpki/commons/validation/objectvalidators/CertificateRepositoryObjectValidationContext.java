@@ -34,6 +34,7 @@ import net.ripe.ipresource.IpResourceSet;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateObject;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509RouterCertificate;
+import net.ripe.rpki.commons.validation.ImmutableResourceSet;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -47,6 +48,9 @@ import java.util.List;
  * contains the issuing certificate, its location, and the effective resource
  * set. The effective resource set must be used, in case the certificate
  * contains inherited IP resources.
+ * <p/>
+ * The resources are kept in an {@link ImmutableResourceSet}, shared with the
+ * context of the parent and with the certificate where possible.
  */
 public class CertificateRepositoryObjectValidationContext {
 
@@ -56,15 +60,19 @@ public class CertificateRepositoryObjectValidationContext {
 
     private final X509CertificateObject certificate;
 
-    private final IpResourceSet resources;
+    private final ImmutableResourceSet resources;
 
-    private IpResourceSet overclaiming = new IpResourceSet();
+    private ImmutableResourceSet overclaiming = ImmutableResourceSet.empty();
 
     public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate) {
-        this(location, certificate, certificate.getResources(), Lists.newArrayList(certificate.getSubject().getName()));
+        this(location, certificate, certificate.getImmutableResources(), Lists.newArrayList(certificate.getSubject().getName()));
     }
 
     public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate, IpResourceSet resources, List<String> subjectChain) {
+        this(location, certificate, ImmutableResourceSet.of(resources), subjectChain);
+    }
+
+    public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate, ImmutableResourceSet resources, List<String> subjectChain) {
         this.location = location;
         this.certificate = certificate;
         this.resources = resources;
@@ -114,28 +122,33 @@ public class CertificateRepositoryObjectValidationContext {
     }
 
     public void addOverclaiming(IpResourceSet overclaiming) {
-        this.overclaiming.addAll(overclaiming);
+        addOverclaiming(ImmutableResourceSet.of(overclaiming));
+    }
+
+    public void addOverclaiming(ImmutableResourceSet overclaiming) {
+        this.overclaiming = this.overclaiming.union(overclaiming);
     }
 
     public CertificateRepositoryObjectValidationContext createChildContext(URI childLocation, X509ResourceCertificate childCertificate) {
-        IpResourceSet effectiveResources = childCertificate.deriveResources(resources);
-        removeOverclaimingResources(effectiveResources);
+        ImmutableResourceSet effectiveResources = childCertificate.deriveResources(resources).difference(overclaiming);
         List<String> childSubjects = Lists.newArrayList(subjectChain);
         childSubjects.add(childCertificate.getSubject().getName());
         return new CertificateRepositoryObjectValidationContext(childLocation, childCertificate, effectiveResources, childSubjects);
     }
 
+    /**
+     * @return a copy of the effective resources, see {@link #getImmutableResources()}.
+     */
     public IpResourceSet getResources() {
-        IpResourceSet result = new IpResourceSet(resources);
-        removeOverclaimingResources(result);
-        return result;
+        return getImmutableResources().toIpResourceSet();
     }
 
-    private void removeOverclaimingResources(IpResourceSet resources) {
-        if (overclaiming.isEmpty() || resources.isEmpty()) {
-            return;
-        }
-        resources.removeAll(overclaiming);
+    /**
+     * @return the effective resources: the resources of the certificate, including inherited resources, without the
+     * resources found to be overclaimed by child certificates.
+     */
+    public ImmutableResourceSet getImmutableResources() {
+        return resources.difference(overclaiming);
     }
 
     @Override
@@ -41,7 +41,7 @@ public class ResourceValidatorFactory {
             CertificateRepositoryObjectValidationContext context,
             ValidationOptions options, ValidationResult result, X509Crl crl) {
 
-        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getResources());
+        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getImmutableResources());
     }
 
     public static X509ResourceCertificateValidator getX509ResourceCertificateValidator(
@@ -51,7 +51,7 @@ public class ResourceValidatorFactory {
         if (options.isAllowOverclaimParentChild())
             return new X509ResourceCertificateParentChildLooseValidator(options, result, crl, context);
 
-        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getResources());
+        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getImmutableResources());
     }
 
     public static X509ResourceCertificateParentChildValidator getX509ResourceCertificateParentChildStrictValidator(
@@ -31,7 +31,7 @@ package net.ripe.rpki.commons.validation.objectvalidators;
 
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapper;
-import net.ripe.rpki.commons.util.UTC;
+import net.ripe.rpki.commons.crypto.x509cert.SignatureVerificationCache;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
@@ -93,7 +93,13 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
 
         boolean errorOccurred = false;
         try {
-            child.verify(parent.getPublicKey()); // signed with issuer's public key
+            // signed with issuer's public key
+            SignatureVerificationCache cache = options.getSignatureVerificationCache();
+            if (cache == null) {
+                child.verify(parent.getPublicKey());
+            } else {
+                cache.verify(child, parent.getPublicKey());
+            }
         } catch (SignatureException | InvalidKeyException e) {
             errorOccurred = true;
         }
@@ -119,11 +125,11 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
     }
 
     protected void verifyValidity() {
-        final DateTime now = UTC.dateTime();
+        final DateTime now = options.getValidationTime();
         final DateTime notValidBefore = child.getValidityPeriod().getNotValidBefore();
         final DateTime notValidAfter = child.getValidityPeriod().getNotValidAfter();
-        result.rejectIfTrue(now.isBefore(notValidBefore), NOT_VALID_BEFORE, notValidBefore.toString());
-        result.rejectIfTrue(now.isAfter(notValidAfter), NOT_VALID_AFTER, notValidAfter.toString());
+        result.rejectIfTrue(now.isBefore(notValidBefore), NOT_VALID_BEFORE, notValidBefore);
+        result.rejectIfTrue(now.isAfter(notValidAfter), NOT_VALID_AFTER, notValidAfter);
     }
 
     private void verifyIssuer() {
@@ -96,6 +96,7 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
         certificates.remove(0); // No need to validate the root (1st parent) certificate against itself
 
         IpResourceSet resources = parent.getResources();
+        ValidationOptions chainOptions = options.withFixedValidationTime();
 
         for (CertificateWithLocation certificateWithLocation : certificates) {
             String childLocation = certificateWithLocation.getLocation().getName();
@@ -107,7 +108,7 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
                 return;
             }
 
-            X509ResourceCertificateParentChildValidator validator = ResourceValidatorFactory.getX509ResourceCertificateParentChildStrictValidator(options, result, parent, resources, crl);
+            X509ResourceCertificateParentChildValidator validator = ResourceValidatorFactory.getX509ResourceCertificateParentChildStrictValidator(chainOptions, result, parent, resources, crl);
             validator.validate(childLocation, child);
 
             resources = child.deriveResources(resources);
@@ -29,9 +29,9 @@
  */
 package net.ripe.rpki.commons.validation.objectvalidators;
 
-import net.ripe.ipresource.IpResourceSet;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.validation.ImmutableResourceSet;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
 
@@ -60,15 +60,14 @@ public class X509ResourceCertificateParentChildLooseValidator extends X509Certif
     private void verifyResources() {
         final ValidationResult result = getValidationResult();
         final X509ResourceCertificate child = getChild();
-        final IpResourceSet resources = context.getResources();
-        final IpResourceSet childResourceSet = child.deriveResources(resources);
+        final ImmutableResourceSet resources = context.getImmutableResources();
+        final ImmutableResourceSet childResourceSet = child.deriveResources(resources);
 
         if (child.isRoot()) {
             result.rejectIfTrue(child.isResourceSetInherited(), ROOT_INHERITS_RESOURCES);
         } else {
             if (!resources.contains(childResourceSet)) {
-                IpResourceSet overclaiming = new IpResourceSet(childResourceSet);
-                overclaiming.removeAll(resources);
+                ImmutableResourceSet overclaiming = childResourceSet.difference(resources);
 
                 context.addOverclaiming(overclaiming);
                 result.warnIfFalse(overclaiming.isEmpty(), RESOURCE_RANGE, overclaiming.toString());
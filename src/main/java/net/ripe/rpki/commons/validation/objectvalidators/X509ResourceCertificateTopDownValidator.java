@@ -0,0 +1,362 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.objectvalidators;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.crl.CrlLocator;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.util.CertificateRepositoryObjectFactory;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.validation.StatusChangeTimes;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationOptions;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.ValidationState;
+import net.ripe.rpki.commons.validation.ValidationStateKey;
+import net.ripe.rpki.commons.validation.ValidationStateStore;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import static net.ripe.rpki.commons.validation.ValidationString.*;
+
+/**
+ * Validates all objects below a trust anchor certificate, starting at the trust anchor and following the manifests
+ * of the CA certificates found.
+ * <p>
+ * Every publication point is validated by a separate {@link ForkJoinPool} task with its own
+ * {@link ValidationResult}, forked from the result passed to the constructor. The results of the child CAs are joined
+ * into the result of their parent in the order of the manifest entries, so the final result does not depend on the
+ * order in which the tasks ran.
+ * <p>
+ * The trust anchor certificate itself is not validated, it must be checked against its trust anchor locator by the
+ * caller. The {@link CrlLocator} and {@link RepositoryObjectSource} are called from multiple threads.
+ * <p>
+ * All time based checks of a run use the same moment: the {@link ValidationOptions#getValidationTime() validation
+ * time} of the options when set, otherwise the time at which the run started.
+ * <p>
+ * With a {@link ValidationStateStore}, the outcome of every object that passes validation is stored, keyed by the
+ * hash of the object and of its issuer, the issuer's resources, the manifest, the CRL and the validation options. On
+ * the next run an object with a stored outcome is only parsed, and the stored warnings are reported instead of
+ * validating it again, until a time based check of the object, the manifest or the CRL may change, see
+ * {@link StatusChangeTimes}. Objects that failed validation are validated again on every run. At the end of a run
+ * the outcomes that were not used in the run are removed from the store, such as the outcomes of objects of an
+ * earlier manifest. A store must therefore only be used for the objects below a single trust anchor.
+ */
+public class X509ResourceCertificateTopDownValidator implements X509ResourceCertificateValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(X509ResourceCertificateTopDownValidator.class);
+
+    private static final int MAX_CHAIN_LENGTH = 30;
+
+    private final ValidationOptions options;
+    private final ValidationResult result;
+    private final CrlLocator crlLocator;
+    private final RepositoryObjectSource objectSource;
+    private final ForkJoinPool pool;
+    @CheckForNull
+    private final ValidationStateStore stateStore;
+    private final Map<URI, CertificateRepositoryObject> validatedObjects = new LinkedHashMap<>();
+
+    public X509ResourceCertificateTopDownValidator(ValidationOptions options, ValidationResult result, CrlLocator crlLocator, RepositoryObjectSource objectSource) {
+        this(options, result, crlLocator, objectSource, ForkJoinPool.commonPool());
+    }
+
+    public X509ResourceCertificateTopDownValidator(ValidationOptions options, ValidationResult result, CrlLocator crlLocator, RepositoryObjectSource objectSource, ForkJoinPool pool) {
+        this(options, result, crlLocator, objectSource, pool, null);
+    }
+
+    public X509ResourceCertificateTopDownValidator(ValidationOptions options, ValidationResult result, CrlLocator crlLocator, RepositoryObjectSource objectSource, ForkJoinPool pool, @CheckForNull ValidationStateStore stateStore) {
+        this.options = options;
+        this.result = result;
+        this.crlLocator = crlLocator;
+        this.objectSource = objectSource;
+        this.pool = pool;
+        this.stateStore = stateStore;
+    }
+
+    @Override
+    public ValidationResult getValidationResult() {
+        return result;
+    }
+
+    /**
+     * @return the objects that passed validation, by URI. Objects of a publication point come before the objects of
+     * its child CAs.
+     */
+    public Map<URI, CertificateRepositoryObject> getValidatedObjects() {
+        return Collections.unmodifiableMap(validatedObjects);
+    }
+
+    @Override
+    public void validate(String location, X509ResourceCertificate trustAnchor) {
+        URI trustAnchorUri = URI.create(location);
+        CertificateRepositoryObjectValidationContext context = new CertificateRepositoryObjectValidationContext(trustAnchorUri, trustAnchor);
+
+        ValidationOptions runOptions = options.withFixedValidationTime();
+        Set<ValidationStateKey> usedStateKeys = ConcurrentHashMap.newKeySet();
+        PublicationPointResult walk = pool.invoke(new PublicationPointTask(context, runOptions, usedStateKeys, Collections.singleton(trustAnchorUri)));
+        if (stateStore != null) {
+            try {
+                stateStore.retainAll(usedStateKeys);
+            } catch (UncheckedIOException e) {
+                log.warn("Could not remove unused validation outcomes from the store", e);
+            }
+        }
+
+        result.join(walk.result);
+        validatedObjects.putAll(walk.objects);
+    }
+
+    private static final class PublicationPointResult {
+        private final ValidationResult result;
+        private final Map<URI, CertificateRepositoryObject> objects = new LinkedHashMap<>();
+
+        private PublicationPointResult(ValidationResult result) {
+            this.result = result;
+        }
+
+        private void join(PublicationPointResult that) {
+            result.join(that.result);
+            objects.putAll(that.objects);
+        }
+    }
+
+    private final class PublicationPointTask extends RecursiveTask<PublicationPointResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient CertificateRepositoryObjectValidationContext context;
+
+        // The options of the validation run, with the validation time fixed at the start of the run.
+        private final transient ValidationOptions runOptions;
+
+        // The keys of the stored outcomes that are looked up or stored in the validation run.
+        private final transient Set<ValidationStateKey> usedStateKeys;
+
+        // Locations of the CA certificate of this publication point and of all its ancestors.
+        private final Set<URI> chain;
+
+        private PublicationPointTask(CertificateRepositoryObjectValidationContext context, ValidationOptions runOptions, Set<ValidationStateKey> usedStateKeys, Set<URI> chain) {
+            this.context = context;
+            this.runOptions = runOptions;
+            this.usedStateKeys = usedStateKeys;
+            this.chain = chain;
+        }
+
+        @Override
+        protected PublicationPointResult compute() {
+            PublicationPointResult publicationPoint = new PublicationPointResult(result.fork().setLocation(new ValidationLocation(context.getLocation())));
+            ValidationResult validationResult = publicationPoint.result;
+
+            ManifestCms manifest;
+            try {
+                manifest = validateManifest(validationResult);
+            } catch (RuntimeException e) {
+                validationResult.setLocation(new ValidationLocation(context.getLocation()));
+                validationResult.error(VALIDATOR_OBJECT_PROCESSING_EXCEPTION, context.getLocation().toString());
+                return publicationPoint;
+            }
+            validationResult.setLocation(new ValidationLocation(context.getLocation()));
+            if (!validationResult.rejectIfNull(manifest, VALIDATOR_CA_SHOULD_HAVE_MANIFEST)) {
+                return publicationPoint;
+            }
+
+            // The outcomes of the objects depend on the CRL of the publication point, as well as on the manifest.
+            X509Crl crl = null;
+            byte[] contextHash = null;
+            if (stateStore != null) {
+                crl = crlLocator.getCrl(manifest.getCrlUri(), context, ValidationResult.withLocation(manifest.getCrlUri()));
+                contextHash = contextHash(manifest, crl);
+            }
+            List<PublicationPointTask> children = new ArrayList<>();
+            for (String fileName : new TreeSet<>(manifest.getFileNames())) {
+                URI uri = context.getManifestURI().resolve(fileName);
+                validationResult.setLocation(new ValidationLocation(uri));
+                try {
+                    CertificateRepositoryObject object = validateObject(uri, manifest, crl, fileName, contextHash, validationResult);
+                    if (object != null) {
+                        publicationPoint.objects.put(uri, object);
+                        if (object instanceof X509ResourceCertificate && ((X509ResourceCertificate) object).isCa()) {
+                            addChild(children, uri, (X509ResourceCertificate) object, validationResult);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    validationResult.error(VALIDATOR_OBJECT_PROCESSING_EXCEPTION, uri.toString());
+                }
+            }
+
+            for (PublicationPointTask child : ForkJoinTask.invokeAll(children)) {
+                publicationPoint.join(child.join());
+            }
+            return publicationPoint;
+        }
+
+        private ManifestCms validateManifest(ValidationResult validationResult) {
+            URI manifestUri = context.getManifestURI();
+            if (manifestUri == null) {
+                return null;
+            }
+            validationResult.setLocation(new ValidationLocation(manifestUri));
+
+            byte[] encoded = objectSource.getObject(manifestUri);
+            if (!validationResult.rejectIfNull(encoded, VALIDATOR_REPOSITORY_OBJECT_NOT_FOUND, manifestUri.toString(), "")) {
+                return null;
+            }
+            CertificateRepositoryObject object = CertificateRepositoryObjectFactory.createCertificateRepositoryObject(encoded, validationResult);
+            if (!validationResult.rejectIfFalse(object instanceof ManifestCms, VALIDATOR_FETCHED_OBJECT_IS_MANIFEST)) {
+                return null;
+            }
+
+            ManifestCms manifest = (ManifestCms) object;
+            manifest.validate(manifestUri.toString(), context, crlLocator, runOptions, validationResult);
+            return validationResult.hasFailureForLocation(new ValidationLocation(manifestUri)) ? null : manifest;
+        }
+
+        private CertificateRepositoryObject validateObject(URI uri, ManifestCms manifest, @CheckForNull X509Crl crl, String fileName, byte[] contextHash, ValidationResult validationResult) {
+            byte[] encoded = objectSource.getObject(uri);
+            if (!validationResult.rejectIfNull(encoded, VALIDATOR_MANIFEST_ENTRY_FOUND, context.getManifestURI().toString())) {
+                return null;
+            }
+
+            // The hash of the fetched bytes serves both the manifest check and the key of the validation state. The
+            // hash of a parsed object can differ, for example when the file has trailing bytes.
+            byte[] hash = ManifestCms.hashContents(encoded);
+            if (!validationResult.rejectIfFalse(manifest.verifyFileHash(fileName, hash), VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES)) {
+                return null;
+            }
+            CertificateRepositoryObject object = CertificateRepositoryObjectFactory.createCertificateRepositoryObject(encoded, validationResult);
+            if (object == null || validationResult.hasFailureForCurrentLocation()) {
+                return null;
+            }
+            if (stateStore != null && isCheckedAgainst(object, manifest, crl)) {
+                return validateObject(uri, object, hash, manifest, crl, contextHash, validationResult);
+            }
+            object.validate(uri.toString(), context, crlLocator, runOptions, validationResult);
+            return validationResult.hasFailureForLocation(new ValidationLocation(uri)) ? null : object;
+        }
+
+        /**
+         * @return true when the object is validated with the CRL of the publication point, so that its outcome only
+         * depends on the CRL and the manifest of the publication point. CRLs themselves do not refer to a CRL.
+         */
+        private boolean isCheckedAgainst(CertificateRepositoryObject object, ManifestCms manifest, @CheckForNull X509Crl crl) {
+            return object instanceof X509Crl || (crl != null && manifest.getCrlUri().equals(object.getCrlUri()));
+        }
+
+        private CertificateRepositoryObject validateObject(URI uri, CertificateRepositoryObject object, byte[] hash, ManifestCms manifest, @CheckForNull X509Crl crl, byte[] contextHash, ValidationResult validationResult) {
+            ValidationStateKey key = ValidationStateKey.of(hash, contextHash);
+            usedStateKeys.add(key);
+            DateTime now = runOptions.getValidationTime();
+            ValidationState state = stateStore.get(key);
+            if (state != null && state.isCurrent(now)) {
+                state.addChecksTo(validationResult);
+                object.restoreValidationOutcome(state.getChecks());
+                return object;
+            }
+
+            ValidationLocation location = new ValidationLocation(uri);
+            ValidationResult objectResult = ValidationResult.withLocation(location);
+            object.validate(uri.toString(), context, crlLocator, runOptions, objectResult);
+            validationResult.addAll(objectResult);
+            validationResult.setLocation(location);
+            if (objectResult.hasFailureForLocation(location)) {
+                return null;
+            }
+            DateTime recheckAt = StatusChangeTimes.earliest(
+                    StatusChangeTimes.nextStatusChangeTime(object, runOptions, now),
+                    StatusChangeTimes.earliest(
+                            StatusChangeTimes.nextStatusChangeTime(manifest, runOptions, now),
+                            crl == null ? null : StatusChangeTimes.nextStatusChangeTime(crl, runOptions, now)));
+            try {
+                stateStore.put(key, ValidationState.of(objectResult, location, now, recheckAt));
+            } catch (UncheckedIOException e) {
+                // The outcome is only not reused, the object is still valid.
+                log.warn("Could not store the validation outcome of " + uri, e);
+            }
+            return object;
+        }
+
+        private byte[] contextHash(ManifestCms manifest, @CheckForNull X509Crl crl) {
+            Digest digest = new SHA256Digest();
+            update(digest, context.getCertificate().getSha256());
+            update(digest, manifest.getSha256());
+            update(digest, crl == null ? new byte[0] : crl.getSha256());
+            update(digest, context.getImmutableResources().toString().getBytes(StandardCharsets.UTF_8));
+            String flags = runOptions.isStrictManifestCRLValidityChecks() + "," + runOptions.getCrlMaxStalePeriod() + ","
+                    + runOptions.getManifestMaxStalePeriod() + "," + runOptions.isAllowOverclaimParentChild();
+            update(digest, flags.getBytes(StandardCharsets.UTF_8));
+            byte[] hash = new byte[digest.getDigestSize()];
+            digest.doFinal(hash, 0);
+            return hash;
+        }
+
+        private void update(Digest digest, byte[] bytes) {
+            // Prefix the length, so that different inputs can not have the same concatenation.
+            digest.update((byte) (bytes.length >>> 24));
+            digest.update((byte) (bytes.length >>> 16));
+            digest.update((byte) (bytes.length >>> 8));
+            digest.update((byte) bytes.length);
+            digest.update(bytes, 0, bytes.length);
+        }
+
+        private void addChild(List<PublicationPointTask> children, URI uri, X509ResourceCertificate certificate, ValidationResult validationResult) {
+            if (!validationResult.rejectIfTrue(chain.contains(uri), VALIDATOR_CIRCULAR_REFERENCE, context.getLocation().toString(), uri.toString())) {
+                return;
+            }
+            if (!validationResult.rejectIfFalse(chain.size() < MAX_CHAIN_LENGTH, CERT_CHAIN_LENGTH, String.valueOf(MAX_CHAIN_LENGTH))) {
+                return;
+            }
+
+            Set<URI> childChain = new HashSet<>(chain);
+            childChain.add(uri);
+            children.add(new PublicationPointTask(context.createChildContext(uri, certificate), runOptions, usedStateKeys, childChain));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+import net.ripe.rpki.commons.crypto.cms.roa.Roa;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import org.apache.commons.lang3.Validate;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable table of allowed routes (validated ROA payloads) in packed primitive arrays.
+ * <p/>
+ * Every row takes 23 bytes, against several hundred for an {@link AllowedRoute} with its {@link Asn} and
+ * {@link IpRange}. Rows are accessed by position. Iterating over the table creates each <code>AllowedRoute</code>
+ * when it is needed. Prefixes are held like in {@link RouteOriginValidationIndex}: up to 128 bits in a high and
+ * low word, with IPv4 prefixes in the upper 32 bits of the high word.
+ */
+public final class AllowedRouteTable implements Iterable<AllowedRoute> {
+
+    private static final int IPV4_BITS = IpResourceType.IPv4.getBitSize();
+    private static final int IPV6_BITS = IpResourceType.IPv6.getBitSize();
+
+    private final int[] asns;
+    private final boolean[] ipv6;
+    private final long[] prefixHigh;
+    private final long[] prefixLow;
+    private final byte[] prefixLength;
+    private final byte[] maximumLength;
+
+    private AllowedRouteTable(int[] asns, boolean[] ipv6, long[] prefixHigh, long[] prefixLow, byte[] prefixLength, byte[] maximumLength) {
+        this.asns = asns;
+        this.ipv6 = ipv6;
+        this.prefixHigh = prefixHigh;
+        this.prefixLow = prefixLow;
+        this.prefixLength = prefixLength;
+        this.maximumLength = maximumLength;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static AllowedRouteTable of(Iterable<? extends AllowedRoute> allowedRoutes) {
+        Builder builder = builder();
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            builder.add(allowedRoute);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The allowed routes of the ROAs, in the same order as {@link AllowedRoute#fromRoas(List)}.
+     */
+    public static AllowedRouteTable fromRoas(List<? extends Roa> roas) {
+        Builder builder = builder();
+        for (Roa roa : roas) {
+            for (RoaPrefix roaPrefix : roa.getPrefixes()) {
+                builder.add(roa.getAsn().longValue(), roaPrefix.getPrefix(), roaPrefix.getEffectiveMaximumLength());
+            }
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return asns.length;
+    }
+
+    /**
+     * @return the AS number of the row, as an unsigned 32 bit value.
+     */
+    public long getAsn(int row) {
+        return asns[row] & 0xFFFFFFFFL;
+    }
+
+    public boolean isIpv6(int row) {
+        return ipv6[row];
+    }
+
+    public long getPrefixHigh(int row) {
+        return prefixHigh[row];
+    }
+
+    public long getPrefixLow(int row) {
+        return prefixLow[row];
+    }
+
+    public int getPrefixLength(int row) {
+        return prefixLength[row] & 0xFF;
+    }
+
+    public int getMaximumLength(int row) {
+        return maximumLength[row] & 0xFF;
+    }
+
+    public AllowedRoute getAllowedRoute(int row) {
+        IpRange prefix;
+        if (ipv6[row]) {
+            BigInteger address = new BigInteger(1, toBytes(prefixHigh[row], prefixLow[row]));
+            prefix = IpRange.prefix(new Ipv6Address(address), getPrefixLength(row));
+        } else {
+            prefix = IpRange.prefix(new Ipv4Address(prefixHigh[row] >>> 32), getPrefixLength(row));
+        }
+        return new AllowedRoute(new Asn(getAsn(row)), prefix, getMaximumLength(row));
+    }
+
+    @Override
+    public Iterator<AllowedRoute> iterator() {
+        return new Iterator<AllowedRoute>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public AllowedRoute next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getAllowedRoute(next++);
+            }
+        };
+    }
+
+    /**
+     * @return the rows ordered by address family (IPv4 first), prefix, maximum length and AS number. Rows that are
+     * equal keep their order.
+     */
+    public AllowedRouteTable sorted() {
+        return select(IndexSort.sortedIndices(size(), (a, b) -> compare(this, a, this, b)), size());
+    }
+
+    /**
+     * @return the sorted rows without duplicates.
+     */
+    public AllowedRouteTable deduplicated() {
+        int[] rows = IndexSort.sortedIndices(size(), (a, b) -> compare(this, a, this, b));
+        int count = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (count == 0 || compare(this, rows[count - 1], this, rows[i]) != 0) {
+                rows[count++] = rows[i];
+            }
+        }
+        return select(rows, count);
+    }
+
+    /**
+     * @return the sorted rows without duplicates of this table that are not in the other table, for example the
+     * allowed routes withdrawn or added between two validation runs.
+     */
+    public AllowedRouteTable minus(AllowedRouteTable other) {
+        AllowedRouteTable left = deduplicated();
+        AllowedRouteTable right = other.deduplicated();
+        int[] rows = new int[left.size()];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < left.size(); i++) {
+            while (j < right.size() && compare(right, j, left, i) < 0) {
+                j++;
+            }
+            if (j == right.size() || compare(right, j, left, i) != 0) {
+                rows[count++] = i;
+            }
+        }
+        return left.select(rows, count);
+    }
+
+    private AllowedRouteTable select(int[] rows, int count) {
+        int[] selectedAsns = new int[count];
+        boolean[] selectedIpv6 = new boolean[count];
+        long[] selectedHigh = new long[count];
+        long[] selectedLow = new long[count];
+        byte[] selectedPrefixLength = new byte[count];
+        byte[] selectedMaximumLength = new byte[count];
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            selectedAsns[i] = asns[row];
+            selectedIpv6[i] = ipv6[row];
+            selectedHigh[i] = prefixHigh[row];
+            selectedLow[i] = prefixLow[row];
+            selectedPrefixLength[i] = prefixLength[row];
+            selectedMaximumLength[i] = maximumLength[row];
+        }
+        return new AllowedRouteTable(selectedAsns, selectedIpv6, selectedHigh, selectedLow, selectedPrefixLength, selectedMaximumLength);
+    }
+
+    private static int compare(AllowedRouteTable left, int i, AllowedRouteTable right, int j) {
+        int c = Boolean.compare(left.ipv6[i], right.ipv6[j]);
+        if (c == 0) {
+            c = Long.compareUnsigned(left.prefixHigh[i], right.prefixHigh[j]);
+        }
+        if (c == 0) {
+            c = Long.compareUnsigned(left.prefixLow[i], right.prefixLow[j]);
+        }
+        if (c == 0) {
+            c = Integer.compare(left.getPrefixLength(i), right.getPrefixLength(j));
+        }
+        if (c == 0) {
+            c = Integer.compare(left.getMaximumLength(i), right.getMaximumLength(j));
+        }
+        return c != 0 ? c : Integer.compareUnsigned(left.asns[i], right.asns[j]);
+    }
+
+    private static byte[] toBytes(long high, long low) {
+        byte[] result = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            result[i] = (byte) (high >>> (56 - 8 * i));
+            result[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return result;
+    }
+
+    public static final class Builder {
+        private int[] asns = new int[16];
+        private boolean[] ipv6 = new boolean[16];
+        private long[] prefixHigh = new long[16];
+        private long[] prefixLow = new long[16];
+        private byte[] prefixLength = new byte[16];
+        private byte[] maximumLength = new byte[16];
+        private int count;
+
+        private Builder() {
+        }
+
+        public Builder add(AllowedRoute allowedRoute) {
+            return add(allowedRoute.getAsn().longValue(), allowedRoute.getPrefix(), allowedRoute.getMaximumLength());
+        }
+
+        public Builder add(long asn, IpRange prefix, int maximumLength) {
+            Validate.isTrue(prefix.isLegalPrefix(), "prefix must be legal: %s", prefix);
+            if (prefix.getType() == IpResourceType.IPv4) {
+                return addIpv4(asn, (int) ((Ipv4Address) prefix.getStart()).longValue(), prefix.getPrefixLength(), maximumLength);
+            } else {
+                BigInteger start = prefix.getStart().getValue();
+                return addIpv6(asn, start.shiftRight(64).longValue(), start.longValue(), prefix.getPrefixLength(), maximumLength);
+            }
+        }
+
+        /**
+         * @param address the IPv4 address of the prefix, as an unsigned 32 bit value.
+         */
+        public Builder addIpv4(long asn, int address, int length, int maximumLength) {
+            Validate.isTrue(length >= 0 && length <= IPV4_BITS, "invalid prefix length %d", length);
+            return add(false, asn, (address & 0xFFFFFFFFL) << 32, 0L, length, maximumLength, IPV4_BITS);
+        }
+
+        /**
+         * @param high the upper 64 bits of the IPv6 address of the prefix.
+         * @param low  the lower 64 bits of the IPv6 address of the prefix.
+         */
+        public Builder addIpv6(long asn, long high, long low, int length, int maximumLength) {
+            Validate.isTrue(length >= 0 && length <= IPV6_BITS, "invalid prefix length %d", length);
+            return add(true, asn, high, low, length, maximumLength, IPV6_BITS);
+        }
+
+        private Builder add(boolean isIpv6, long asn, long high, long low, int length, int maximum, int bits) {
+            Validate.isTrue(asn >= 0 && asn <= 0xFFFFFFFFL, "invalid AS number %d", asn);
+            Validate.isTrue(maximum >= 0 && maximum <= bits, "invalid maximum length %d", maximum);
+            Validate.isTrue((high & ~PrefixTrie.highMask(length)) == 0 && (low & ~PrefixTrie.lowMask(length)) == 0, "address has bits set beyond the prefix length");
+            if (count == asns.length) {
+                int capacity = count * 2;
+                asns = Arrays.copyOf(asns, capacity);
+                ipv6 = Arrays.copyOf(ipv6, capacity);
+                prefixHigh = Arrays.copyOf(prefixHigh, capacity);
+                prefixLow = Arrays.copyOf(prefixLow, capacity);
+                prefixLength = Arrays.copyOf(prefixLength, capacity);
+                maximumLength = Arrays.copyOf(maximumLength, capacity);
+            }
+            asns[count] = (int) asn;
+            ipv6[count] = isIpv6;
+            prefixHigh[count] = high;
+            prefixLow[count] = low;
+            prefixLength[count] = (byte) length;
+            maximumLength[count] = (byte) maximum;
+            count++;
+            return this;
+        }
+
+        public AllowedRouteTable build() {
+            return new AllowedRouteTable(
+                Arrays.copyOf(asns, count),
+                Arrays.copyOf(ipv6, count),
+                Arrays.copyOf(prefixHigh, count),
+                Arrays.copyOf(prefixLow, count),
+                Arrays.copyOf(prefixLength, count),
+                Arrays.copyOf(maximumLength, count));
+        }
+    }
+}
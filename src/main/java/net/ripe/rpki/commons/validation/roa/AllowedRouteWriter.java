@@ -0,0 +1,362 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.rpki.commons.crypto.cms.roa.Roa;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import org.apache.commons.lang3.Validate;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes allowed routes (validated ROA payloads) one at a time, using a fixed size buffer and without creating
+ * strings for the values.
+ * <p/>
+ * The formats are:
+ * <ul>
+ * <li>CSV: a header line <code>ASN,IP Prefix,Max Length</code> followed by lines like
+ * <code>AS3333,193.0.0.0/21,21</code>.</li>
+ * <li>JSON: <code>{"roas":[{"asn":"AS3333","prefix":"193.0.0.0/21","maxLength":21}, ...]}</code></li>
+ * <li>Binary: the four bytes <code>'V' 'R' 'P' 1</code>, followed by a record per allowed route of the address family
+ * (4 or 6), prefix length, maximum length, the AS number as 4 bytes and the 4 or 16 address bytes of the prefix.
+ * Numbers are big endian.</li>
+ * </ul>
+ * Prefixes are written in the same notation as {@link IpRange#toString()}. {@link #close()} completes the output and
+ * closes the underlying writer or channel.
+ */
+public abstract class AllowedRouteWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Longest row of any format, with room to spare. */
+    private static final int MAXIMUM_ROW_LENGTH = 128;
+
+    private AllowedRouteWriter() {
+    }
+
+    public static AllowedRouteWriter csv(Writer out) throws IOException {
+        return new CsvWriter(out);
+    }
+
+    public static AllowedRouteWriter csv(WritableByteChannel out) throws IOException {
+        return csv(Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE));
+    }
+
+    public static AllowedRouteWriter json(Writer out) throws IOException {
+        return new JsonWriter(out);
+    }
+
+    public static AllowedRouteWriter json(WritableByteChannel out) throws IOException {
+        return json(Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE));
+    }
+
+    public static AllowedRouteWriter binary(WritableByteChannel out) throws IOException {
+        return new BinaryWriter(out);
+    }
+
+    public AllowedRouteWriter write(AllowedRoute allowedRoute) throws IOException {
+        return write(allowedRoute.getAsn().longValue(), allowedRoute.getPrefix(), allowedRoute.getMaximumLength());
+    }
+
+    /**
+     * Writes the allowed routes of a ROA, in the order of its prefixes.
+     */
+    public AllowedRouteWriter write(Roa roa) throws IOException {
+        long asn = roa.getAsn().longValue();
+        for (RoaPrefix roaPrefix : roa.getPrefixes()) {
+            write(asn, roaPrefix.getPrefix(), roaPrefix.getEffectiveMaximumLength());
+        }
+        return this;
+    }
+
+    public AllowedRouteWriter write(AllowedRouteTable allowedRoutes) throws IOException {
+        for (int row = 0; row < allowedRoutes.size(); row++) {
+            writeRow(allowedRoutes.getAsn(row), allowedRoutes.isIpv6(row), allowedRoutes.getPrefixHigh(row),
+                allowedRoutes.getPrefixLow(row), allowedRoutes.getPrefixLength(row), allowedRoutes.getMaximumLength(row));
+        }
+        return this;
+    }
+
+    private AllowedRouteWriter write(long asn, IpRange prefix, int maximumLength) throws IOException {
+        Validate.isTrue(prefix.isLegalPrefix(), "prefix must be legal: %s", prefix);
+        if (prefix.getType() == IpResourceType.IPv4) {
+            writeRow(asn, false, ((Ipv4Address) prefix.getStart()).longValue() << 32, 0L, prefix.getPrefixLength(), maximumLength);
+        } else {
+            BigInteger start = prefix.getStart().getValue();
+            writeRow(asn, true, start.shiftRight(64).longValue(), start.longValue(), prefix.getPrefixLength(), maximumLength);
+        }
+        return this;
+    }
+
+    /**
+     * @param high the upper 64 bits of the address, IPv4 addresses use the upper 32 bits of this word.
+     * @param low  the lower 64 bits of an IPv6 address.
+     */
+    protected abstract void writeRow(long asn, boolean ipv6, long high, long low, int prefixLength, int maximumLength) throws IOException;
+
+    /**
+     * Text formats, formatted into a character buffer that is written out when it is almost full.
+     */
+    private abstract static class TextWriter extends AllowedRouteWriter {
+        private final Writer out;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+
+        TextWriter(Writer out) {
+            this.out = out;
+        }
+
+        protected void ensureRowCapacity() throws IOException {
+            if (position > buffer.length - MAXIMUM_ROW_LENGTH) {
+                flushBuffer();
+            }
+        }
+
+        protected void append(char c) {
+            buffer[position++] = c;
+        }
+
+        protected void append(String s) {
+            s.getChars(0, s.length(), buffer, position);
+            position += s.length();
+        }
+
+        protected void appendDecimal(long value) {
+            if (value >= 10) {
+                appendDecimal(value / 10);
+            }
+            buffer[position++] = (char) ('0' + value % 10);
+        }
+
+        protected void appendPrefix(boolean ipv6, long high, long low, int prefixLength) {
+            if (ipv6) {
+                appendIpv6(high, low);
+            } else {
+                for (int shift = 56; shift >= 32; shift -= 8) {
+                    appendDecimal((high >>> shift) & 0xFF);
+                    if (shift > 32) {
+                        append('.');
+                    }
+                }
+            }
+            append('/');
+            appendDecimal(prefixLength);
+        }
+
+        /**
+         * Formats an IPv6 address as in RFC 5952: lower case hexadecimal groups without leading zeros and the first
+         * longest run of two or more zero groups replaced by <code>::</code>.
+         */
+        private void appendIpv6(long high, long low) {
+            int runStart = -1;
+            int runLength = 0;
+            for (int group = 0; group < 8; ) {
+                if (group(high, low, group) != 0) {
+                    group++;
+                    continue;
+                }
+                int end = group;
+                while (end < 8 && group(high, low, end) == 0) {
+                    end++;
+                }
+                if (end - group > runLength && end - group >= 2) {
+                    runStart = group;
+                    runLength = end - group;
+                }
+                group = end;
+            }
+            for (int group = 0; group < 8; group++) {
+                if (group == runStart) {
+                    append(':');
+                    if (group == 0) {
+                        append(':');
+                    }
+                    group += runLength - 1;
+                    continue;
+                }
+                appendHex(group(high, low, group));
+                if (group < 7) {
+                    append(':');
+                }
+            }
+        }
+
+        private static int group(long high, long low, int group) {
+            long word = group < 4 ? high : low;
+            return (int) (word >>> (48 - 16 * (group % 4))) & 0xFFFF;
+        }
+
+        private void appendHex(int value) {
+            boolean leading = true;
+            for (int shift = 12; shift >= 0; shift -= 4) {
+                int digit = (value >>> shift) & 0xF;
+                if (digit != 0 || !leading || shift == 0) {
+                    buffer[position++] = Character.forDigit(digit, 16);
+                    leading = false;
+                }
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        protected void finish() throws IOException {
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+                flushBuffer();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class CsvWriter extends TextWriter {
+        CsvWriter(Writer out) {
+            super(out);
+            append("ASN,IP Prefix,Max Length\n");
+        }
+
+        @Override
+        protected void writeRow(long asn, boolean ipv6, long high, long low, int prefixLength, int maximumLength) throws IOException {
+            ensureRowCapacity();
+            append("AS");
+            appendDecimal(asn);
+            append(',');
+            appendPrefix(ipv6, high, low, prefixLength);
+            append(',');
+            appendDecimal(maximumLength);
+            append('\n');
+        }
+    }
+
+    private static final class JsonWriter extends TextWriter {
+        private boolean first = true;
+
+        JsonWriter(Writer out) {
+            super(out);
+            append("{\"roas\":[");
+        }
+
+        @Override
+        protected void writeRow(long asn, boolean ipv6, long high, long low, int prefixLength, int maximumLength) throws IOException {
+            ensureRowCapacity();
+            if (!first) {
+                append(',');
+            }
+            first = false;
+            append("\n{\"asn\":\"AS");
+            appendDecimal(asn);
+            append("\",\"prefix\":\"");
+            appendPrefix(ipv6, high, low, prefixLength);
+            append("\",\"maxLength\":");
+            appendDecimal(maximumLength);
+            append('}');
+        }
+
+        @Override
+        protected void finish() {
+            append("\n]}\n");
+        }
+    }
+
+    private static final class BinaryWriter extends AllowedRouteWriter {
+        private static final byte[] MAGIC = {'V', 'R', 'P', 1};
+
+        private final WritableByteChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        BinaryWriter(WritableByteChannel out) {
+            this.out = out;
+            buffer.put(MAGIC);
+        }
+
+        @Override
+        protected void writeRow(long asn, boolean ipv6, long high, long low, int prefixLength, int maximumLength) throws IOException {
+            if (buffer.remaining() < MAXIMUM_ROW_LENGTH) {
+                flushBuffer();
+            }
+            buffer.put((byte) (ipv6 ? 6 : 4));
+            buffer.put((byte) prefixLength);
+            buffer.put((byte) maximumLength);
+            buffer.putInt((int) asn);
+            if (ipv6) {
+                buffer.putLong(high);
+                buffer.putLong(low);
+            } else {
+                buffer.putInt((int) (high >>> 32));
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBuffer();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
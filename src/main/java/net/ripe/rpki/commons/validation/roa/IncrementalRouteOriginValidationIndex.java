@@ -0,0 +1,329 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.Ipv4Address;
+import org.apache.commons.lang3.Validate;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static net.ripe.rpki.commons.validation.roa.PrefixTrie.bit;
+import static net.ripe.rpki.commons.validation.roa.PrefixTrie.commonPrefixLength;
+import static net.ripe.rpki.commons.validation.roa.PrefixTrie.highMask;
+import static net.ripe.rpki.commons.validation.roa.PrefixTrie.lowMask;
+
+/**
+ * Route origin validation index that is updated with added and withdrawn allowed routes instead of being rebuilt.
+ * <p/>
+ * The allowed routes are a set: adding a route that is present or withdrawing one that is not has no effect. Every
+ * update produces a new immutable {@link Snapshot}. The tries of a snapshot share all nodes that were not on the path
+ * of a changed prefix with the previous snapshot, so applying a delta costs time proportional to its size. Updates
+ * are serialised, while readers get the current snapshot without locking and keep a consistent view for as long
+ * as they hold on to it.
+ */
+public final class IncrementalRouteOriginValidationIndex {
+
+    private volatile Snapshot current = new Snapshot(0L, Node.ROOT, Node.ROOT, 0);
+
+    public IncrementalRouteOriginValidationIndex() {
+    }
+
+    public IncrementalRouteOriginValidationIndex(Iterable<? extends AllowedRoute> allowedRoutes) {
+        apply(allowedRoutes, Collections.<AllowedRoute>emptyList());
+    }
+
+    /**
+     * @return the latest version of the index.
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+        return current.validate(announcedRoute);
+    }
+
+    /**
+     * Withdraws and then adds allowed routes, and publishes the result as a new snapshot. A route that is both
+     * withdrawn and added remains in the index.
+     *
+     * @return the new snapshot.
+     */
+    public synchronized Snapshot apply(Iterable<? extends AllowedRoute> added, Iterable<? extends AllowedRoute> withdrawn) {
+        Snapshot snapshot = current;
+        Node ipv4 = snapshot.ipv4;
+        Node ipv6 = snapshot.ipv6;
+        int size = snapshot.size;
+        for (AllowedRoute allowedRoute : withdrawn) {
+            Key key = new Key(allowedRoute);
+            if (key.ipv6) {
+                Node result = remove(ipv6, key);
+                size -= result == ipv6 ? 0 : 1;
+                ipv6 = result;
+            } else {
+                Node result = remove(ipv4, key);
+                size -= result == ipv4 ? 0 : 1;
+                ipv4 = result;
+            }
+        }
+        for (AllowedRoute allowedRoute : added) {
+            Key key = new Key(allowedRoute);
+            if (key.ipv6) {
+                Node result = add(ipv6, key);
+                size += result == ipv6 ? 0 : 1;
+                ipv6 = result;
+            } else {
+                Node result = add(ipv4, key);
+                size += result == ipv4 ? 0 : 1;
+                ipv4 = result;
+            }
+        }
+        Snapshot result = new Snapshot(snapshot.version + 1, ipv4, ipv6, size);
+        current = result;
+        return result;
+    }
+
+    /**
+     * @return the node with the entry of the key added, or the node itself when the entry is present.
+     */
+    private static Node add(Node node, Key key) {
+        if (node.length == key.length) {
+            return node.withEntry(key.entry);
+        }
+        int direction = bit(key.high, key.low, node.length);
+        Node child = node.child(direction);
+        Node replacement;
+        if (child == null) {
+            replacement = new Node(key.high, key.low, key.length, null, null, new long[]{key.entry});
+        } else {
+            int common = Math.min(commonPrefixLength(key.high, key.low, child.high, child.low), Math.min(key.length, child.length));
+            if (common == child.length) {
+                replacement = add(child, key);
+            } else if (common == key.length) {
+                replacement = new Node(key.high, key.low, key.length, null, null, new long[]{key.entry})
+                    .withChild(bit(child.high, child.low, key.length), child);
+            } else {
+                Node leaf = new Node(key.high, key.low, key.length, null, null, new long[]{key.entry});
+                replacement = new Node(key.high & highMask(common), key.low & lowMask(common), common, null, null, Node.NO_ENTRIES)
+                    .withChild(bit(key.high, key.low, common), leaf)
+                    .withChild(bit(child.high, child.low, common), child);
+            }
+        }
+        return replacement == child ? node : node.withChild(direction, replacement);
+    }
+
+    /**
+     * @return the node with the entry of the key removed, or the node itself when the entry is not present.
+     */
+    private static Node remove(Node node, Key key) {
+        if (node.length == key.length) {
+            return node.withoutEntry(key.entry);
+        }
+        int direction = bit(key.high, key.low, node.length);
+        Node child = node.child(direction);
+        if (child == null || child.length > key.length || !child.covers(key.high, key.low)) {
+            return node;
+        }
+        Node replacement = remove(child, key);
+        return replacement == child ? node : node.withChild(direction, replacement.pruned());
+    }
+
+    /**
+     * An immutable version of the index.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final Node ipv4;
+        private final Node ipv6;
+        private final int size;
+
+        private Snapshot(long version, Node ipv4, Node ipv6, int size) {
+            this.version = version;
+            this.ipv4 = ipv4;
+            this.ipv6 = ipv6;
+            this.size = size;
+        }
+
+        /**
+         * @return the number of updates applied to the index before this snapshot was published.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the number of allowed routes.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Classifies the announcement like
+         * {@link RouteOriginValidationPolicy#validateAnnouncedRoute(net.ripe.ipresource.etree.NestedIntervalMap, AnnouncedRoute)}
+         * with the allowed routes of this snapshot, in the order they were added.
+         */
+        public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+            IpRange prefix = announcedRoute.getPrefix();
+            int asn = (int) announcedRoute.getOriginAsn().longValue();
+            if (prefix.getType() == IpResourceType.IPv4) {
+                return validate(ipv4, asn, ((Ipv4Address) prefix.getStart()).longValue() << 32, 0L, prefix.getPrefixLength());
+            } else {
+                BigInteger start = prefix.getStart().getValue();
+                return validate(ipv6, asn, start.shiftRight(64).longValue(), start.longValue(), prefix.getPrefixLength());
+            }
+        }
+
+        private static RouteValidityState validate(Node root, int asn, long high, long low, int length) {
+            RouteValidityState result = RouteValidityState.UNKNOWN;
+            Node node = root;
+            while (node != null && node.length <= length && node.covers(high, low)) {
+                for (long entry : node.entries) {
+                    if ((int) (entry >>> 8) != asn) {
+                        result = RouteValidityState.INVALID_ASN;
+                    } else if (length > (int) (entry & 0xFF)) {
+                        result = RouteValidityState.INVALID_LENGTH;
+                    } else {
+                        return RouteValidityState.VALID;
+                    }
+                }
+                if (node.length == length) {
+                    break;
+                }
+                node = node.child(bit(high, low, node.length));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The trie key and packed (ASN, maximum length) entry of an allowed route.
+     */
+    private static final class Key {
+        private final boolean ipv6;
+        private final long high;
+        private final long low;
+        private final int length;
+        private final long entry;
+
+        Key(AllowedRoute allowedRoute) {
+            IpRange prefix = allowedRoute.getPrefix();
+            Validate.isTrue(prefix.isLegalPrefix(), "allowed route prefix must be legal: %s", prefix);
+            this.length = prefix.getPrefixLength();
+            if (prefix.getType() == IpResourceType.IPv4) {
+                this.ipv6 = false;
+                this.high = ((Ipv4Address) prefix.getStart()).longValue() << 32;
+                this.low = 0L;
+            } else {
+                BigInteger start = prefix.getStart().getValue();
+                this.ipv6 = true;
+                this.high = start.shiftRight(64).longValue();
+                this.low = start.longValue();
+            }
+            this.entry = (allowedRoute.getAsn().longValue() << 8) | allowedRoute.getMaximumLength();
+        }
+    }
+
+    /**
+     * Immutable trie node. Updates copy the nodes on the path to the changed prefix.
+     */
+    private static final class Node {
+        static final long[] NO_ENTRIES = new long[0];
+        static final Node ROOT = new Node(0L, 0L, 0, null, null, NO_ENTRIES);
+
+        final long high;
+        final long low;
+        final int length;
+        final Node left;
+        final Node right;
+        /** (ASN, maximum length) packed as <code>asn << 8 | maximumLength</code>, in the order they were added. */
+        final long[] entries;
+
+        Node(long high, long low, int length, Node left, Node right, long[] entries) {
+            this.high = high;
+            this.low = low;
+            this.length = length;
+            this.left = left;
+            this.right = right;
+            this.entries = entries;
+        }
+
+        Node child(int direction) {
+            return direction == 0 ? left : right;
+        }
+
+        boolean covers(long high, long low) {
+            return ((high ^ this.high) & highMask(length)) == 0 && ((low ^ this.low) & lowMask(length)) == 0;
+        }
+
+        Node withChild(int direction, Node child) {
+            return direction == 0
+                ? new Node(high, low, length, child, right, entries)
+                : new Node(high, low, length, left, child, entries);
+        }
+
+        Node withEntry(long entry) {
+            for (long existing : entries) {
+                if (existing == entry) {
+                    return this;
+                }
+            }
+            long[] result = Arrays.copyOf(entries, entries.length + 1);
+            result[entries.length] = entry;
+            return new Node(high, low, length, left, right, result);
+        }
+
+        Node withoutEntry(long entry) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] == entry) {
+                    long[] result = new long[entries.length - 1];
+                    System.arraycopy(entries, 0, result, 0, i);
+                    System.arraycopy(entries, i + 1, result, i, result.length - i);
+                    return new Node(high, low, length, left, right, result);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return the node, or its only child (possibly none) when it has no entries of its own.
+         */
+        Node pruned() {
+            if (entries.length > 0 || (left != null && right != null)) {
+                return this;
+            }
+            return left != null ? left : right;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+/**
+ * Stable sort of an array of indices, so that packed primitive arrays can be sorted without boxing their elements.
+ */
+final class IndexSort {
+
+    interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    private IndexSort() {
+        // Utility classes should not have a public or default constructor.
+    }
+
+    /**
+     * @return the indices <code>0 .. count - 1</code> in the order defined by the comparator. Indices that compare
+     * equal stay in ascending order.
+     */
+    static int[] sortedIndices(int count, IndexComparator comparator) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        sort(indices, comparator);
+        return indices;
+    }
+
+    static void sort(int[] indices, IndexComparator comparator) {
+        int[] buffer = new int[indices.length];
+        int[] source = indices;
+        int[] target = buffer;
+        for (int width = 1; width < indices.length; width *= 2) {
+            for (int start = 0; start < indices.length; start += 2 * width) {
+                int middle = Math.min(start + width, indices.length);
+                int end = Math.min(start + 2 * width, indices.length);
+                merge(source, target, start, middle, end, comparator);
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != indices) {
+            System.arraycopy(source, 0, indices, 0, indices.length);
+        }
+    }
+
+    private static void merge(int[] source, int[] target, int start, int middle, int end, IndexComparator comparator) {
+        int i = start;
+        int j = middle;
+        for (int k = start; k < end; k++) {
+            if (i < middle && (j >= end || comparator.compare(source[i], source[j]) <= 0)) {
+                target[k] = source[i++];
+            } else {
+                target[k] = source[j++];
+            }
+        }
+    }
+}
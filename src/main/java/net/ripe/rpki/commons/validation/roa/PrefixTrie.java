@@ -0,0 +1,385 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+
+/**
+ * Path compressed binary trie of IP prefixes with the (ASN, maximum length) entries of every prefix in packed arrays.
+ * <p/>
+ * Prefixes are keys of up to 128 bits held in a high and low <code>long</code>, most significant bit first. IPv4
+ * prefixes only use the upper 32 bits of the high word. Every node is the root of a subtree of more specific
+ * prefixes, so the entries covering a prefix are found by a single walk from the root. The trie is immutable once
+ * built and safe to share between threads.
+ */
+final class PrefixTrie {
+
+    static final int NONE = -1;
+
+    private static final int ROOT = 0;
+
+    private static final int NODE_WORDS = 4;
+    private static final int HIGH = 0;
+    private static final int LOW = 1;
+    private static final int CHILDREN = 2;
+    private static final int ENTRIES = 3;
+
+    private static final int MAXIMUM_ENTRIES_PER_PREFIX = (1 << 24) - 1;
+
+    /**
+     * Four words per node, numbered in depth first order so that the top of the trie shares few cache lines: the
+     * prefix high and low words, the left and right child, and the start, count and prefix length of its entries.
+     */
+    private final long[] nodes;
+
+    private final int[] entryAsn;
+    private final byte[] entryMaximumLength;
+    private final int[] entryId;
+
+    private PrefixTrie(long[] nodes, int[] entryAsn, byte[] entryMaximumLength, int[] entryId) {
+        this.nodes = nodes;
+        this.entryAsn = entryAsn;
+        this.entryMaximumLength = entryMaximumLength;
+        this.entryId = entryId;
+    }
+
+    int size() {
+        return entryAsn.length;
+    }
+
+    int nodeCount() {
+        return nodes.length / NODE_WORDS;
+    }
+
+    /**
+     * Classifies an announcement with the same outcome as
+     * {@link RouteOriginValidationPolicy#validateAnnouncedRoute(net.ripe.ipresource.etree.NestedIntervalMap, AnnouncedRoute)}:
+     * valid when any covering entry matches, otherwise the state of the last covering entry, from the least to the
+     * most specific prefix.
+     */
+    RouteValidityState validate(int asn, long high, long low, int length) {
+        RouteValidityState result = RouteValidityState.UNKNOWN;
+        int node = ROOT;
+        while (node != NONE) {
+            int base = node * NODE_WORDS;
+            long entries = nodes[base + ENTRIES];
+            int prefixLength = (int) entries & 0xFF;
+            if (prefixLength > length || !covers(base, prefixLength, high, low)) {
+                break;
+            }
+            int start = (int) (entries >>> 32);
+            int end = start + ((int) entries >>> 8);
+            for (int entry = start; entry < end; entry++) {
+                if (entryAsn[entry] != asn) {
+                    result = RouteValidityState.INVALID_ASN;
+                } else if (length > (entryMaximumLength[entry] & 0xFF)) {
+                    result = RouteValidityState.INVALID_LENGTH;
+                } else {
+                    return RouteValidityState.VALID;
+                }
+            }
+            if (prefixLength == length) {
+                break;
+            }
+            long children = nodes[base + CHILDREN];
+            node = bit(high, low, prefixLength) == 0 ? (int) (children >>> 32) : (int) children;
+        }
+        return result;
+    }
+
+    /**
+     * Classifies an announcement like {@link #validate(int, long, long, int)} and appends the ids of all covering
+     * entries, from the least to the most specific prefix, to <code>covering</code>.
+     */
+    RouteValidityState validate(int asn, long high, long low, int length, EntryIds covering) {
+        RouteValidityState result = RouteValidityState.UNKNOWN;
+        boolean valid = false;
+        int node = ROOT;
+        while (node != NONE) {
+            int base = node * NODE_WORDS;
+            long entries = nodes[base + ENTRIES];
+            int prefixLength = (int) entries & 0xFF;
+            if (prefixLength > length || !covers(base, prefixLength, high, low)) {
+                break;
+            }
+            int start = (int) (entries >>> 32);
+            int end = start + ((int) entries >>> 8);
+            for (int entry = start; entry < end; entry++) {
+                covering.add(entryId[entry]);
+                if (entryAsn[entry] != asn) {
+                    result = RouteValidityState.INVALID_ASN;
+                } else if (length > (entryMaximumLength[entry] & 0xFF)) {
+                    result = RouteValidityState.INVALID_LENGTH;
+                } else {
+                    valid = true;
+                }
+            }
+            if (prefixLength == length) {
+                break;
+            }
+            long children = nodes[base + CHILDREN];
+            node = bit(high, low, prefixLength) == 0 ? (int) (children >>> 32) : (int) children;
+        }
+        return valid ? RouteValidityState.VALID : result;
+    }
+
+    private boolean covers(int base, int prefixLength, long high, long low) {
+        return ((high ^ nodes[base + HIGH]) & highMask(prefixLength)) == 0
+            && ((low ^ nodes[base + LOW]) & lowMask(prefixLength)) == 0;
+    }
+
+    static int bit(long high, long low, int index) {
+        return index < 64 ? (int) (high >>> (63 - index)) & 1 : (int) (low >>> (127 - index)) & 1;
+    }
+
+    static long highMask(int length) {
+        return length == 0 ? 0L : length >= 64 ? -1L : -1L << (64 - length);
+    }
+
+    static long lowMask(int length) {
+        return length <= 64 ? 0L : length == 128 ? -1L : -1L << (128 - length);
+    }
+
+    static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+        long high = high1 ^ high2;
+        return high != 0 ? Long.numberOfLeadingZeros(high) : 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    /**
+     * Growable list of entry ids.
+     */
+    static final class EntryIds {
+        private int[] ids = new int[64];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return ids[index];
+        }
+    }
+
+    static final class Builder {
+
+        private final int addressLength;
+
+        private long[] nodeHigh = new long[16];
+        private long[] nodeLow = new long[16];
+        private byte[] nodeLength = new byte[16];
+        private int[] nodeLeft = new int[16];
+        private int[] nodeRight = new int[16];
+        private int nodeCount;
+
+        private long[] high = new long[16];
+        private long[] low = new long[16];
+        private byte[] length = new byte[16];
+        private int[] asn = new int[16];
+        private byte[] maximumLength = new byte[16];
+        private int[] id = new int[16];
+        private int count;
+
+        /**
+         * @param addressLength the number of bits of the addresses in this trie, 32 or 128.
+         */
+        Builder(int addressLength) {
+            this.addressLength = addressLength;
+        }
+
+        Builder add(long prefixHigh, long prefixLow, int prefixLength, int originAsn, int prefixMaximumLength, int entryId) {
+            Validate.isTrue(prefixLength >= 0 && prefixLength <= addressLength, "invalid prefix length %d", prefixLength);
+            Validate.isTrue(prefixMaximumLength >= 0 && prefixMaximumLength <= addressLength, "invalid maximum length %d", prefixMaximumLength);
+            if (count == high.length) {
+                int capacity = count * 2;
+                high = Arrays.copyOf(high, capacity);
+                low = Arrays.copyOf(low, capacity);
+                length = Arrays.copyOf(length, capacity);
+                asn = Arrays.copyOf(asn, capacity);
+                maximumLength = Arrays.copyOf(maximumLength, capacity);
+                id = Arrays.copyOf(id, capacity);
+            }
+            high[count] = prefixHigh & highMask(prefixLength);
+            low[count] = prefixLow & lowMask(prefixLength);
+            length[count] = (byte) prefixLength;
+            asn[count] = originAsn;
+            maximumLength[count] = (byte) prefixMaximumLength;
+            id[count] = entryId;
+            count++;
+            return this;
+        }
+
+        PrefixTrie build() {
+            // Sorting by prefix keeps the entries of a prefix together, in the order they were added.
+            int[] order = IndexSort.sortedIndices(count, (a, b) -> {
+                int c = Long.compareUnsigned(high[a], high[b]);
+                if (c == 0) {
+                    c = Long.compareUnsigned(low[a], low[b]);
+                }
+                return c != 0 ? c : Integer.compare(length[a] & 0xFF, length[b] & 0xFF);
+            });
+
+            nodeCount = 0;
+            newNode(0L, 0L, 0);
+            int[] nodeOfEntry = new int[count];
+            for (int i = 0; i < count; i++) {
+                int entry = order[i];
+                boolean samePrefix = i > 0 && high[entry] == high[order[i - 1]] && low[entry] == low[order[i - 1]] && length[entry] == length[order[i - 1]];
+                nodeOfEntry[i] = samePrefix ? nodeOfEntry[i - 1] : insert(high[entry], low[entry], length[entry] & 0xFF);
+            }
+
+            int[] preorder = preorder();
+            int[] entryStart = new int[nodeCount + 1];
+            for (int i = 0; i < count; i++) {
+                entryStart[preorder[nodeOfEntry[i]] + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                Validate.isTrue(entryStart[node + 1] <= MAXIMUM_ENTRIES_PER_PREFIX, "too many entries for a single prefix");
+                entryStart[node + 1] += entryStart[node];
+            }
+            int[] next = Arrays.copyOf(entryStart, nodeCount);
+            int[] entryAsn = new int[count];
+            byte[] entryMaximumLength = new byte[count];
+            int[] entryId = new int[count];
+            for (int i = 0; i < count; i++) {
+                int entry = order[i];
+                int position = next[preorder[nodeOfEntry[i]]]++;
+                entryAsn[position] = asn[entry];
+                entryMaximumLength[position] = maximumLength[entry];
+                entryId[position] = id[entry];
+            }
+
+            long[] nodes = new long[nodeCount * NODE_WORDS];
+            for (int node = 0; node < nodeCount; node++) {
+                int base = preorder[node] * NODE_WORDS;
+                int left = nodeLeft[node] == NONE ? NONE : preorder[nodeLeft[node]];
+                int right = nodeRight[node] == NONE ? NONE : preorder[nodeRight[node]];
+                int start = entryStart[preorder[node]];
+                int entries = entryStart[preorder[node] + 1] - start;
+                nodes[base + HIGH] = nodeHigh[node];
+                nodes[base + LOW] = nodeLow[node];
+                nodes[base + CHILDREN] = ((long) left << 32) | (right & 0xFFFFFFFFL);
+                nodes[base + ENTRIES] = ((long) start << 32) | ((long) entries << 8) | (nodeLength[node] & 0xFF);
+            }
+            return new PrefixTrie(nodes, entryAsn, entryMaximumLength, entryId);
+        }
+
+        /**
+         * @return the depth first position of every node.
+         */
+        private int[] preorder() {
+            int[] position = new int[nodeCount];
+            int[] stack = new int[nodeCount];
+            int depth = 0;
+            int visited = 0;
+            stack[depth++] = ROOT;
+            while (depth > 0) {
+                int node = stack[--depth];
+                position[node] = visited++;
+                if (nodeRight[node] != NONE) {
+                    stack[depth++] = nodeRight[node];
+                }
+                if (nodeLeft[node] != NONE) {
+                    stack[depth++] = nodeLeft[node];
+                }
+            }
+            return position;
+        }
+
+        private int insert(long prefixHigh, long prefixLow, int prefixLength) {
+            int node = ROOT;
+            while (true) {
+                int length = nodeLength[node] & 0xFF;
+                if (length == prefixLength) {
+                    return node;
+                }
+                int direction = bit(prefixHigh, prefixLow, length);
+                int child = direction == 0 ? nodeLeft[node] : nodeRight[node];
+                if (child == NONE) {
+                    int leaf = newNode(prefixHigh, prefixLow, prefixLength);
+                    setChild(node, direction, leaf);
+                    return leaf;
+                }
+
+                int childLength = nodeLength[child] & 0xFF;
+                int common = Math.min(commonPrefixLength(prefixHigh, prefixLow, nodeHigh[child], nodeLow[child]), Math.min(prefixLength, childLength));
+                if (common == childLength) {
+                    node = child;
+                } else if (common == prefixLength) {
+                    int inserted = newNode(prefixHigh, prefixLow, prefixLength);
+                    setChild(inserted, bit(nodeHigh[child], nodeLow[child], prefixLength), child);
+                    setChild(node, direction, inserted);
+                    return inserted;
+                } else {
+                    int branch = newNode(prefixHigh & highMask(common), prefixLow & lowMask(common), common);
+                    int leaf = newNode(prefixHigh, prefixLow, prefixLength);
+                    setChild(branch, bit(prefixHigh, prefixLow, common), leaf);
+                    setChild(branch, bit(nodeHigh[child], nodeLow[child], common), child);
+                    setChild(node, direction, branch);
+                    return leaf;
+                }
+            }
+        }
+
+        private int newNode(long prefixHigh, long prefixLow, int prefixLength) {
+            if (nodeCount == nodeHigh.length) {
+                int capacity = nodeCount * 2;
+                nodeHigh = Arrays.copyOf(nodeHigh, capacity);
+                nodeLow = Arrays.copyOf(nodeLow, capacity);
+                nodeLength = Arrays.copyOf(nodeLength, capacity);
+                nodeLeft = Arrays.copyOf(nodeLeft, capacity);
+                nodeRight = Arrays.copyOf(nodeRight, capacity);
+            }
+            nodeHigh[nodeCount] = prefixHigh;
+            nodeLow[nodeCount] = prefixLow;
+            nodeLength[nodeCount] = (byte) prefixLength;
+            nodeLeft[nodeCount] = NONE;
+            nodeRight[nodeCount] = NONE;
+            return nodeCount++;
+        }
+
+        private void setChild(int node, int direction, int child) {
+            if (direction == 0) {
+                nodeLeft[node] = child;
+            } else {
+                nodeRight[node] = child;
+            }
+        }
+    }
+}
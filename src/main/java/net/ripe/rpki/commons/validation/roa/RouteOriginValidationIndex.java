@@ -0,0 +1,294 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.Ipv4Address;
+import org.apache.commons.lang3.Validate;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable index of allowed routes for route origin validation.
+ * <p/>
+ * IPv4 and IPv6 prefixes are held in separate path compressed tries over primitive keys, with the origin ASN and
+ * maximum length of every allowed route in packed arrays. Classifying an announcement walks from the least to the
+ * most specific covering prefix without allocating, and gives the same outcome as
+ * {@link RouteOriginValidationPolicy#validateAnnouncedRoute(net.ripe.ipresource.etree.NestedIntervalMap, AnnouncedRoute)}.
+ * An index can be shared between threads.
+ * <p/>
+ * Large numbers of announcements are best classified in batches with {@link #validateAll(Collection)}. A batch is
+ * sorted by prefix first, so that consecutive lookups walk the same part of the tries.
+ */
+public final class RouteOriginValidationIndex {
+
+    private static final int IPV4_BITS = IpResourceType.IPv4.getBitSize();
+    private static final int IPV6_BITS = IpResourceType.IPv6.getBitSize();
+
+    /**
+     * Number of consecutive prefixes of a sorted batch classified by a single task.
+     */
+    private static final int BATCH_CHUNK_SIZE = 8192;
+
+    private final PrefixTrie ipv4;
+    private final PrefixTrie ipv6;
+
+    private RouteOriginValidationIndex(PrefixTrie ipv4, PrefixTrie ipv6) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+    }
+
+    /**
+     * Builds the index of the allowed routes. The allowed routes are numbered in iteration order, starting at zero.
+     */
+    public static RouteOriginValidationIndex of(Iterable<? extends AllowedRoute> allowedRoutes) {
+        PrefixTrie.Builder ipv4 = new PrefixTrie.Builder(IPV4_BITS);
+        PrefixTrie.Builder ipv6 = new PrefixTrie.Builder(IPV6_BITS);
+        int id = 0;
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            IpRange prefix = allowedRoute.getPrefix();
+            Validate.isTrue(prefix.isLegalPrefix(), "allowed route prefix must be legal: %s", prefix);
+            BigInteger start = prefix.getStart().getValue();
+            int asn = (int) allowedRoute.getAsn().longValue();
+            if (prefix.getType() == IpResourceType.IPv4) {
+                ipv4.add(start.longValue() << 32, 0L, prefix.getPrefixLength(), asn, allowedRoute.getMaximumLength(), id);
+            } else {
+                ipv6.add(start.shiftRight(64).longValue(), start.longValue(), prefix.getPrefixLength(), asn, allowedRoute.getMaximumLength(), id);
+            }
+            id++;
+        }
+        return new RouteOriginValidationIndex(ipv4.build(), ipv6.build());
+    }
+
+    /**
+     * Builds the index of the rows of the table. The allowed routes are numbered by their row.
+     */
+    public static RouteOriginValidationIndex of(AllowedRouteTable allowedRoutes) {
+        PrefixTrie.Builder ipv4 = new PrefixTrie.Builder(IPV4_BITS);
+        PrefixTrie.Builder ipv6 = new PrefixTrie.Builder(IPV6_BITS);
+        for (int row = 0; row < allowedRoutes.size(); row++) {
+            PrefixTrie.Builder builder = allowedRoutes.isIpv6(row) ? ipv6 : ipv4;
+            builder.add(allowedRoutes.getPrefixHigh(row), allowedRoutes.getPrefixLow(row), allowedRoutes.getPrefixLength(row),
+                (int) allowedRoutes.getAsn(row), allowedRoutes.getMaximumLength(row), row);
+        }
+        return new RouteOriginValidationIndex(ipv4.build(), ipv6.build());
+    }
+
+    /**
+     * @return the number of allowed routes in this index.
+     */
+    public int size() {
+        return ipv4.size() + ipv6.size();
+    }
+
+    public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+        IpRange prefix = announcedRoute.getPrefix();
+        long asn = announcedRoute.getOriginAsn().longValue();
+        if (prefix.getType() == IpResourceType.IPv4) {
+            return validateIpv4(asn, (int) ((Ipv4Address) prefix.getStart()).longValue(), prefix.getPrefixLength());
+        } else {
+            BigInteger start = prefix.getStart().getValue();
+            return validateIpv6(asn, start.shiftRight(64).longValue(), start.longValue(), prefix.getPrefixLength());
+        }
+    }
+
+    /**
+     * @param originAsn    the origin AS number of the announcement.
+     * @param address      the IPv4 address of the announced prefix, as an unsigned 32 bit value.
+     * @param prefixLength the length of the announced prefix.
+     */
+    public RouteValidityState validateIpv4(long originAsn, int address, int prefixLength) {
+        Validate.isTrue(prefixLength >= 0 && prefixLength <= IPV4_BITS, "invalid prefix length %d", prefixLength);
+        return ipv4.validate((int) originAsn, (address & 0xFFFFFFFFL) << 32, 0L, prefixLength);
+    }
+
+    /**
+     * @param originAsn    the origin AS number of the announcement.
+     * @param high         the upper 64 bits of the IPv6 address of the announced prefix.
+     * @param low          the lower 64 bits of the IPv6 address of the announced prefix.
+     * @param prefixLength the length of the announced prefix.
+     */
+    public RouteValidityState validateIpv6(long originAsn, long high, long low, int prefixLength) {
+        Validate.isTrue(prefixLength >= 0 && prefixLength <= IPV6_BITS, "invalid prefix length %d", prefixLength);
+        return ipv6.validate((int) originAsn, high, low, prefixLength);
+    }
+
+    /**
+     * Classifies the announcements on the calling thread.
+     */
+    public RouteValidityResults validateAll(Collection<? extends AnnouncedRoute> announcedRoutes) {
+        Batch batch = new Batch(announcedRoutes);
+        for (Batch.Chunk chunk : batch.chunks) {
+            chunk.classify();
+        }
+        return batch.results();
+    }
+
+    /**
+     * Classifies the announcements, splitting large batches into tasks on the pool.
+     */
+    public RouteValidityResults validateAll(Collection<? extends AnnouncedRoute> announcedRoutes, ForkJoinPool pool) {
+        Batch batch = new Batch(announcedRoutes);
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(batch.chunks);
+            }
+        });
+        return batch.results();
+    }
+
+    public RouteValidityResults validateAll(Stream<? extends AnnouncedRoute> announcedRoutes) {
+        return validateAll(announcedRoutes.collect(Collectors.toList()));
+    }
+
+    /**
+     * The announcements of a batch as primitive keys, sorted by prefix and split into chunks.
+     */
+    private final class Batch {
+        private final boolean[] isIpv6;
+        private final long[] high;
+        private final long[] low;
+        private final byte[] length;
+        private final int[] asn;
+        private final int[] order;
+        private final List<Chunk> chunks = new ArrayList<>();
+
+        private final byte[] states;
+        private final int[] coveringStart;
+
+        Batch(Collection<? extends AnnouncedRoute> announcedRoutes) {
+            int count = announcedRoutes.size();
+            isIpv6 = new boolean[count];
+            high = new long[count];
+            low = new long[count];
+            length = new byte[count];
+            asn = new int[count];
+            int i = 0;
+            for (AnnouncedRoute announcedRoute : announcedRoutes) {
+                IpRange prefix = announcedRoute.getPrefix();
+                if (prefix.getType() == IpResourceType.IPv4) {
+                    high[i] = ((Ipv4Address) prefix.getStart()).longValue() << 32;
+                } else {
+                    BigInteger start = prefix.getStart().getValue();
+                    isIpv6[i] = true;
+                    high[i] = start.shiftRight(64).longValue();
+                    low[i] = start.longValue();
+                }
+                length[i] = (byte) prefix.getPrefixLength();
+                asn[i] = (int) announcedRoute.getOriginAsn().longValue();
+                i++;
+            }
+            order = sortByPrefix(count);
+            for (int from = 0; from < count; from += BATCH_CHUNK_SIZE) {
+                chunks.add(new Chunk(from, Math.min(from + BATCH_CHUNK_SIZE, count)));
+            }
+            states = new byte[count];
+            coveringStart = new int[count + 1];
+        }
+
+        /**
+         * Orders the announcements by address family and the leading bits of their prefix. Only locality matters for
+         * the lookups, so a primitive sort of the position tagged with as many leading bits as fit in a long is used
+         * instead of an exact ordering of the prefixes.
+         */
+        private int[] sortByPrefix(int count) {
+            int positionBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(count - 1));
+            int prefixBits = 63 - positionBits - 1;
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                long family = isIpv6[i] ? 1L << (63 - positionBits - 1) : 0L;
+                long prefix = high[i] >>> (64 - prefixBits);
+                keys[i] = ((family | prefix) << positionBits) | i;
+            }
+            Arrays.sort(keys);
+            int[] result = new int[count];
+            long positionMask = (1L << positionBits) - 1;
+            for (int i = 0; i < count; i++) {
+                result[i] = (int) (keys[i] & positionMask);
+            }
+            return result;
+        }
+
+        RouteValidityResults results() {
+            for (int i = 0; i < states.length; i++) {
+                coveringStart[i + 1] += coveringStart[i];
+            }
+            int[] covering = new int[coveringStart[states.length]];
+            for (Chunk chunk : chunks) {
+                int next = 0;
+                for (int i = chunk.from; i < chunk.to; i++) {
+                    int route = order[i];
+                    for (int position = coveringStart[route]; position < coveringStart[route + 1]; position++) {
+                        covering[position] = chunk.covering.get(next++);
+                    }
+                }
+            }
+            return new RouteValidityResults(states, coveringStart, covering);
+        }
+
+        private final class Chunk extends RecursiveAction {
+            private final int from;
+            private final int to;
+            private final PrefixTrie.EntryIds covering = new PrefixTrie.EntryIds();
+
+            Chunk(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                classify();
+            }
+
+            void classify() {
+                for (int i = from; i < to; i++) {
+                    int route = order[i];
+                    PrefixTrie trie = isIpv6[route] ? ipv6 : ipv4;
+                    int before = covering.size();
+                    RouteValidityState state = trie.validate(asn[route], high[route], low[route], length[route] & 0xFF, covering);
+                    states[route] = (byte) state.ordinal();
+                    // Counts are stored one position up, the prefix sum in results() turns them into start offsets.
+                    coveringStart[route + 1] = covering.size() - before;
+                }
+            }
+        }
+    }
+}
@@ -79,6 +79,10 @@ public class RouteOriginValidationPolicy {
         return result;
     }
 
+    public RouteValidityState validateAnnouncedRoute(RouteOriginValidationIndex allowedRoutes, AnnouncedRoute announcedRoute) {
+        return allowedRoutes.validate(announcedRoute);
+    }
+
     private RouteValidityState validate(AllowedRoute allowedRoute, AnnouncedRoute announcedRoute) {
         IpRange announcedPrefix = announcedRoute.getPrefix();
 
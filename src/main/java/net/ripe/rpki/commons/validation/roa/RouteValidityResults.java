@@ -0,0 +1,102 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The outcome of validating a batch of announced routes with
+ * {@link RouteOriginValidationIndex#validateAll(java.util.Collection)}, in the order of the announcements.
+ * <p/>
+ * For every announcement this holds its validity state and the allowed routes covering its prefix, identified by
+ * their position in the allowed routes the index was built from. The covering allowed routes are ordered from the
+ * least to the most specific prefix. Everything is stored in packed arrays rather than an object per announcement.
+ */
+public final class RouteValidityResults {
+
+    private static final RouteValidityState[] STATES = RouteValidityState.values();
+
+    private final byte[] states;
+    /** The covering allowed routes of announcement <code>i</code> are <code>covering[coveringStart[i] .. coveringStart[i + 1] - 1]</code>. */
+    private final int[] coveringStart;
+    private final int[] covering;
+
+    RouteValidityResults(byte[] states, int[] coveringStart, int[] covering) {
+        this.states = states;
+        this.coveringStart = coveringStart;
+        this.covering = covering;
+    }
+
+    /**
+     * @return the number of announcements.
+     */
+    public int size() {
+        return states.length;
+    }
+
+    public RouteValidityState getState(int announcement) {
+        return STATES[states[announcement]];
+    }
+
+    public int getCoveringAllowedRouteCount(int announcement) {
+        return coveringStart[announcement + 1] - coveringStart[announcement];
+    }
+
+    /**
+     * @return the position of the <code>n</code>th allowed route covering the announcement.
+     */
+    public int getCoveringAllowedRoute(int announcement, int n) {
+        if (n < 0 || n >= getCoveringAllowedRouteCount(announcement)) {
+            throw new IndexOutOfBoundsException("covering allowed route " + n + " of announcement " + announcement);
+        }
+        return covering[coveringStart[announcement] + n];
+    }
+
+    /**
+     * @return the positions of the allowed routes covering the announcement.
+     */
+    public int[] getCoveringAllowedRoutes(int announcement) {
+        return Arrays.copyOfRange(covering, coveringStart[announcement], coveringStart[announcement + 1]);
+    }
+
+    public Map<RouteValidityState, Integer> countByState() {
+        int[] counts = new int[STATES.length];
+        for (byte state : states) {
+            counts[state]++;
+        }
+        Map<RouteValidityState, Integer> result = new EnumMap<>(RouteValidityState.class);
+        for (RouteValidityState state : STATES) {
+            result.put(state, counts[state.ordinal()]);
+        }
+        return result;
+    }
+}
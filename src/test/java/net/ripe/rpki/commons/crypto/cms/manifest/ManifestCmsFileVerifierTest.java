@@ -0,0 +1,148 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class ManifestCmsFileVerifierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ManifestCms manifest = ManifestCmsTest.getRootManifestCms();
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("repository").toPath();
+        Files.write(directory.resolve("filename1.cer"), new byte[]{'a', 'b', 'c'});
+        Files.write(directory.resolve("filename2.roa"), new byte[]{'d', 'e', 'f'});
+    }
+
+    @Test
+    public void shouldMatchFilesInDirectory() throws IOException {
+        ManifestCmsFileVerifier.Result result = ManifestCmsFileVerifier.verify(manifest, directory);
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getMissingFiles().isEmpty());
+        assertTrue(result.getMismatchedFiles().isEmpty());
+        assertTrue(result.getExtraFiles().isEmpty());
+    }
+
+    @Test
+    public void shouldReportMissingExtraAndMismatchedFiles() throws IOException {
+        Files.delete(directory.resolve("filename1.cer"));
+        Files.write(directory.resolve("filename2.roa"), new byte[]{'x'});
+        Files.write(directory.resolve("manifest.mft"), new byte[]{'m'});
+        Files.createDirectory(directory.resolve("subdirectory"));
+
+        ManifestCmsFileVerifier.Result result = ManifestCmsFileVerifier.verify(manifest, directory);
+
+        assertFalse(result.isSuccess());
+        assertEquals(new TreeSet<>(Arrays.asList("filename1.cer")), result.getMissingFiles());
+        assertEquals(new TreeSet<>(Arrays.asList("filename2.roa")), result.getMismatchedFiles());
+        assertEquals(new TreeSet<>(Arrays.asList("manifest.mft")), result.getExtraFiles());
+    }
+
+    @Test
+    public void shouldVerifyResolvedFilesOnExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ManifestCmsFileVerifier.Result result = ManifestCmsFileVerifier.verify(
+                    manifest,
+                    fileName -> fileName.equals("filename2.roa") ? null : directory.resolve(fileName),
+                    executor);
+
+            assertEquals(new TreeSet<>(Arrays.asList("filename2.roa")), result.getMissingFiles());
+            assertTrue(result.getMismatchedFiles().isEmpty());
+            assertTrue(result.getExtraFiles().isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldVerifyOtherFilesWhenResolverFails() {
+        ManifestCmsFileVerifier.Result result = ManifestCmsFileVerifier.verify(
+                manifest,
+                fileName -> {
+                    if (fileName.equals("filename1.cer")) {
+                        throw new IllegalStateException("cannot resolve " + fileName);
+                    }
+                    return directory.resolve(fileName);
+                },
+                Runnable::run);
+
+        assertEquals(new TreeSet<>(Arrays.asList("filename1.cer")), result.getMissingFiles());
+        assertTrue(result.getMismatchedFiles().isEmpty());
+    }
+
+    @Test
+    public void shouldMatchFilesLargerThanBuffer() throws IOException {
+        byte[] contents = new byte[100_000];
+        Arrays.fill(contents, (byte) 'z');
+        ManifestCmsBuilder builder = ManifestCmsTest.getRootManifestBuilder();
+        builder.addFile("large.roa", contents);
+        ManifestCms large = builder.build(ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate());
+        Files.write(directory.resolve("large.roa"), contents);
+
+        ManifestCmsFileVerifier.Result result = ManifestCmsFileVerifier.verify(large, directory);
+
+        assertTrue(result.isSuccess());
+        assertEquals(new TreeSet<>(Arrays.asList("filename1.cer", "filename2.roa")), result.getExtraFiles());
+    }
+
+    @Test
+    public void shouldNotReadFilesOutsideDirectory() throws IOException {
+        byte[] contents = {'a', 'b', 'c'};
+        Files.write(folder.getRoot().toPath().resolve("outside.cer"), contents);
+        ManifestCmsBuilder builder = ManifestCmsTest.getRootManifestBuilder();
+        builder.addFile("../outside.cer", contents);
+        ManifestCms traversing = builder.build(ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate());
+
+        ManifestCmsFileVerifier.Result result = ManifestCmsFileVerifier.verify(traversing, directory);
+
+        assertEquals(new TreeSet<>(Arrays.asList("../outside.cer")), result.getMissingFiles());
+    }
+}
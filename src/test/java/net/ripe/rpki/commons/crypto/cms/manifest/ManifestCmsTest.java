@@ -151,6 +151,17 @@ public class ManifestCmsTest {
         assertFalse(spec.isSatisfiedBy(FILE1_CONTENTS));
     }
 
+    @Test
+    public void shouldVerifyFileHash() {
+        ManifestCmsBuilder builder = getRootManifestBuilder();
+        builder.addFile("foo.crl", FILE1_CONTENTS);
+        builder.addFile("bar.crl", FILE2_CONTENTS);
+        ManifestCms manifest = builder.build(MANIFEST_KEY_PAIR.getPrivate());
+
+        assertTrue(manifest.verifyFileHash("foo.crl", ManifestCms.hashContents(FILE1_CONTENTS)));
+        assertFalse(manifest.verifyFileHash("bar.crl", ManifestCms.hashContents(FILE1_CONTENTS)));
+    }
+
     @Test
     public void shouldValidateManifestCms() {
         X509Crl crl = getRootCrl();
@@ -220,6 +231,41 @@ public class ManifestCmsTest {
         );
     }
 
+    @Test
+    public void shouldCheckUpdateTimesAtValidationTime() {
+        // The clock is at THIS_UPDATE_TIME, at which the manifest is current.
+        X509Crl crl = getRootCrl();
+        CertificateRepositoryObjectValidationContext context = new CertificateRepositoryObjectValidationContext(ROOT_CERTIFICATE_LOCATION, rootCertificate, rootCertificate.getResources(), Lists.newArrayList(rootCertificate.getSubject().getName()));
+        ValidationOptions options = ValidationOptions.withStaleConfigurations(Duration.ZERO, Duration.standardDays(100 * 365))
+                .withValidationTime(NEXT_UPDATE_TIME.plusDays(1));
+        ValidationResult result = ValidationResult.withLocation(ROOT_SIA_MANIFEST_RSYNC_LOCATION);
+        when(crlLocator.getCrl(ROOT_MANIFEST_CRL_LOCATION, context, result)).thenReturn(crl);
+
+        subject.validate(ROOT_SIA_MANIFEST_RSYNC_LOCATION.toString(), context, crlLocator, options, result);
+
+        assertFalse("" + result.getFailuresForAllLocations(), result.hasFailures());
+        assertEquals(
+                new ValidationCheck(ValidationStatus.WARNING, ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME, NEXT_UPDATE_TIME.toString()),
+                result.getResult(new ValidationLocation(ROOT_SIA_MANIFEST_RSYNC_LOCATION), ValidationString.MANIFEST_PAST_NEXT_UPDATE_TIME)
+        );
+    }
+
+    @Test
+    public void shouldRejectWhenThisUpdateAfterValidationTime() {
+        X509Crl crl = getRootCrl();
+        CertificateRepositoryObjectValidationContext context = new CertificateRepositoryObjectValidationContext(ROOT_CERTIFICATE_LOCATION, rootCertificate, rootCertificate.getResources(), Lists.newArrayList(rootCertificate.getSubject().getName()));
+        ValidationOptions options = ValidationOptions.backCompatibleRipeNccValidator().withValidationTime(THIS_UPDATE_TIME.minusSeconds(1));
+        ValidationResult result = ValidationResult.withLocation(ROOT_SIA_MANIFEST_RSYNC_LOCATION);
+        when(crlLocator.getCrl(ROOT_MANIFEST_CRL_LOCATION, context, result)).thenReturn(crl);
+
+        subject.validate(ROOT_SIA_MANIFEST_RSYNC_LOCATION.toString(), context, crlLocator, options, result);
+
+        assertEquals(
+                new ValidationCheck(ValidationStatus.ERROR, ValidationString.MANIFEST_BEFORE_THIS_UPDATE_TIME, THIS_UPDATE_TIME.toString()),
+                result.getResult(new ValidationLocation(ROOT_SIA_MANIFEST_RSYNC_LOCATION), ValidationString.MANIFEST_BEFORE_THIS_UPDATE_TIME)
+        );
+    }
+
     @Test
     public void shouldRejectWhenManifestIsTooStaleDueToNegativeGracePeriod() {
         X509Crl crl = getRootCrl();
@@ -29,6 +29,7 @@
  */
 package net.ripe.rpki.commons.crypto.crl;
 
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
 import net.ripe.rpki.commons.crypto.util.KeyPairUtil;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.util.UTC;
@@ -44,6 +45,8 @@ import javax.security.auth.x500.X500Principal;
 import java.math.BigInteger;
 import java.net.URI;
 import java.security.KeyPair;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
 
 import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
@@ -88,6 +91,24 @@ public class X509CrlTest {
     }
 
 
+    @Test
+    public void shouldCacheSha256OfEncodedCrl() {
+        X509Crl crl = createCrl();
+
+        assertArrayEquals(ManifestCms.hashContents(crl.getEncoded()), crl.getSha256());
+        assertSame(crl.getSha256(), crl.getSha256());
+    }
+
+    @Test
+    public void shouldCompareCrlsByContents() {
+        X509Crl crl = createCrl();
+        X509Crl copy = new X509Crl(crl.getEncoded().clone());
+
+        assertEquals(crl, copy);
+        assertEquals(crl.hashCode(), copy.hashCode());
+        assertNotEquals(crl, getCrlWithKeyPair(SECOND_TEST_KEY_PAIR));
+    }
+
     @Test
     public void shouldValidateCrl() {
         X509Crl subject = createCrl();
@@ -125,4 +146,70 @@ public class X509CrlTest {
         X509Crl subject = createCrl();
         assertFalse(subject.isPastValidityTime());
     }
+
+    @Test
+    public void shouldBePastValidityTimeAfterNextUpdateTime() {
+        X509Crl subject = createCrl();
+        assertFalse(subject.isPastValidityTime(subject.getNextUpdateTime()));
+        assertTrue(subject.isPastValidityTime(subject.getNextUpdateTime().plusMillis(1)));
+    }
+
+    @Test
+    public void shouldRememberSuccessfulSignatureVerification() throws SignatureException {
+        X509Crl subject = createCrl();
+
+        subject.verify(TEST_KEY_PAIR.getPublic());
+        subject.verify(TEST_KEY_PAIR.getPublic());
+        try {
+            subject.verify(SECOND_TEST_KEY_PAIR.getPublic());
+            fail("CRL must not verify with a different key");
+        } catch (SignatureException expected) {
+            // expected
+        }
+        subject.verify(TEST_KEY_PAIR.getPublic());
+    }
+
+    @Test
+    public void shouldNotRememberFailedSignatureVerification() {
+        X509Crl subject = getCrlWithKeyPair(SECOND_TEST_KEY_PAIR);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                subject.verify(TEST_KEY_PAIR.getPublic());
+                fail("CRL must not verify with a different key");
+            } catch (SignatureException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void shouldLookUpRevokedCertificatesBySerialNumber() {
+        BigInteger largeSerial = BigInteger.ONE.shiftLeft(150).add(BigInteger.ONE);
+        X509Crl subject = getCrlBuilder()
+                .withIssuerDN(TEST_SELF_SIGNED_CERTIFICATE_NAME)
+                .addEntry(BigInteger.valueOf(3), UTC.dateTime().minusDays(1))
+                .addEntry(largeSerial, UTC.dateTime().minusDays(1))
+                .addEntry(BigInteger.ONE, UTC.dateTime().minusDays(1))
+                .build(TEST_KEY_PAIR.getPrivate());
+
+        assertTrue(subject.isRevoked(createCertificate(TEST_SELF_SIGNED_CERTIFICATE_NAME, BigInteger.ONE)));
+        assertTrue(subject.isRevoked(createCertificate(TEST_SELF_SIGNED_CERTIFICATE_NAME, largeSerial)));
+        assertFalse(subject.isRevoked(createCertificate(TEST_SELF_SIGNED_CERTIFICATE_NAME, BigInteger.valueOf(2))));
+        assertFalse(subject.isRevoked(createCertificate(TEST_SELF_SIGNED_CERTIFICATE_NAME, largeSerial.subtract(BigInteger.ONE))));
+        assertFalse("serial number of a different issuer", subject.isRevoked(createCertificate(new X500Principal("CN=other"), BigInteger.ONE)));
+
+        assertEquals(largeSerial, subject.getRevokedCertificate(largeSerial).getSerialNumber());
+        assertNull(subject.getRevokedCertificate(BigInteger.valueOf(2)));
+        assertEquals(3, subject.getRevokedCertificates().size());
+        assertEquals(BigInteger.ONE, subject.getRevokedCertificates().first().getSerialNumber());
+    }
+
+    private X509Certificate createCertificate(X500Principal issuer, BigInteger serial) {
+        return createSelfSignedCaResourceCertificateBuilder()
+                .withIssuerDN(issuer)
+                .withSerial(serial)
+                .build()
+                .getCertificate();
+    }
 }
@@ -168,6 +168,20 @@ public class X509CrlValidatorTest {
         assertFalse(result.hasFailures());
     }
 
+    @Test
+    public void shouldCheckValidityTimesAtValidationTime() {
+        DateTime thisUpdateTime = UTC.dateTime().withMillisOfSecond(0);
+        DateTime nextUpdateTime = thisUpdateTime.plusDays(1);
+        X509Crl crl = getRootCRL().withThisUpdateTime(thisUpdateTime).withNextUpdateTime(nextUpdateTime).build(ROOT_KEY_PAIR.getPrivate());
+
+        options.setValidationTime(thisUpdateTime.minusHours(1));
+        subject.validate("location", crl);
+
+        result = subject.getValidationResult();
+        assertTrue(result.hasFailures());
+        assertEquals(new ValidationCheck(ValidationStatus.ERROR, CRL_THIS_UPDATE_AFTER_NOW, thisUpdateTime.toString()), result.getResult(new ValidationLocation("location"), CRL_THIS_UPDATE_AFTER_NOW));
+    }
+
     private X509ResourceCertificate getRootResourceCertificate() {
         X509ResourceCertificateBuilder builder = new X509ResourceCertificateBuilder();
 
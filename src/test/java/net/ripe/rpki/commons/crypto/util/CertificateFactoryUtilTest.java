@@ -0,0 +1,104 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.junit.Test;
+
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class CertificateFactoryUtilTest {
+
+    @Test
+    public void shouldReuseCertificateFactoryWithinThread() {
+        assertSame(CertificateFactoryUtil.getCertificateFactory(), CertificateFactoryUtil.getCertificateFactory());
+    }
+
+    @Test
+    public void shouldUseSeparateCertificateFactoryPerThread() throws Exception {
+        CertificateFactory other = CompletableFuture.supplyAsync(CertificateFactoryUtil::getCertificateFactory).get();
+        assertNotSame(CertificateFactoryUtil.getCertificateFactory(), other);
+    }
+
+    @Test
+    public void shouldDecodeCertificate() throws Exception {
+        X509ResourceCertificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+
+        X509Certificate decoded = CertificateFactoryUtil.decodeCertificate(certificate.getEncoded());
+
+        assertEquals(certificate.getCertificate(), decoded);
+    }
+
+    @Test
+    public void shouldConvertCertificateHolder() throws Exception {
+        X509ResourceCertificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+
+        X509CertificateHolder holder = new X509CertificateHolder(certificate.getEncoded());
+
+        assertEquals(certificate.getCertificate(), CertificateFactoryUtil.holderToCertificate(holder));
+    }
+
+    @Test(expected = CertificateException.class)
+    public void shouldRejectInvalidCertificate() throws Exception {
+        CertificateFactoryUtil.decodeCertificate(new byte[]{0x30, 0x03, 0x02, 0x01, 0x01});
+    }
+
+    @Test(expected = CertificateException.class)
+    public void shouldRejectMissingCertificate() throws Exception {
+        CertificateFactoryUtil.decodeCertificate(null);
+    }
+
+    @Test
+    public void shouldDecodeCrl() throws Exception {
+        X509Crl crl = X509CrlTest.createCrl();
+
+        X509CRL decoded = CertificateFactoryUtil.decodeCrl(crl.getEncoded());
+
+        assertEquals(crl.getCrl(), decoded);
+        assertEquals(crl.getCrl(), CertificateFactoryUtil.holderToCrl(new X509CRLHolder(crl.getEncoded())));
+    }
+
+    @Test(expected = CRLException.class)
+    public void shouldRejectInvalidCrl() throws Exception {
+        CertificateFactoryUtil.decodeCrl(new byte[]{0x30, 0x03, 0x02, 0x01, 0x01});
+    }
+}
@@ -45,7 +45,13 @@ import net.ripe.rpki.commons.validation.ValidationResult;
 import net.ripe.rpki.commons.validation.ValidationStatus;
 import org.junit.Test;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static net.ripe.rpki.commons.crypto.util.CertificateRepositoryObjectFactory.createCertificateRepositoryObject;
 import static net.ripe.rpki.commons.validation.ValidationStatus.ERROR;
@@ -197,4 +203,46 @@ public class CertificateRepositoryObjectFactoryTest {
         assertEquals(3, validationResult.getAllValidationChecksForCurrentLocation().size());
         assertTrue(validationResult.getResultForCurrentLocation(KNOWN_OBJECT_TYPE).isOk());
     }
+
+    @Test
+    public void shouldParseBatchOnExecutor() {
+        Map<URI, byte[]> encoded = new LinkedHashMap<>();
+        encoded.put(URI.create("rsync://example.com/repository/manifest.mft"), ManifestCmsTest.getRootManifestCms().getEncoded());
+        encoded.put(URI.create("rsync://example.com/repository/roa.roa"), RoaCmsTest.getRoaCms().getEncoded());
+        encoded.put(URI.create("rsync://example.com/repository/crl.crl"), X509CrlTest.createCrl().getEncoded());
+        encoded.put(URI.create("rsync://example.com/repository/certificate.cer"), X509ResourceCertificateTest.createSelfSignedCaResourceCertificate().getEncoded());
+        encoded.put(URI.create("rsync://example.com/repository/malformed.roa"), new byte[]{0, 1});
+        encoded.put(URI.create("rsync://example.com/repository/file.unknown"), new byte[]{0, 1});
+        for (int i = 0; i < 200; i++) {
+            encoded.put(URI.create("rsync://example.com/repository/roa-" + i + ".roa"), RoaCmsTest.getRoaCms().getEncoded());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Map<URI, ParsedCertificateRepositoryObject> parsed;
+        try {
+            parsed = CertificateRepositoryObjectFactory.createCertificateRepositoryObjects(encoded, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(new ArrayList<>(encoded.keySet()), new ArrayList<>(parsed.keySet()));
+        for (Map.Entry<URI, byte[]> entry : encoded.entrySet()) {
+            ValidationResult expected = ValidationResult.withLocation(entry.getKey());
+            CertificateRepositoryObject expectedObject = createCertificateRepositoryObject(entry.getValue(), expected);
+            ParsedCertificateRepositoryObject actual = parsed.get(entry.getKey());
+
+            assertEquals(entry.getKey(), actual.getLocation());
+            if (expectedObject == null) {
+                assertNull(actual.getObject());
+            } else {
+                assertEquals(expectedObject.getClass(), actual.getObject().getClass());
+                assertArrayEquals(expectedObject.getEncoded(), actual.getObject().getEncoded());
+            }
+            assertEquals(expected.getAllValidationChecksForCurrentLocation(), actual.getValidationResult().getAllValidationChecksForCurrentLocation());
+            assertEquals(!expected.hasFailures(), actual.isSuccess());
+        }
+        assertTrue(parsed.get(URI.create("rsync://example.com/repository/roa.roa")).isSuccess());
+        assertFalse(parsed.get(URI.create("rsync://example.com/repository/malformed.roa")).isSuccess());
+        assertFalse(parsed.get(URI.create("rsync://example.com/repository/file.unknown")).isSuccess());
+    }
 }
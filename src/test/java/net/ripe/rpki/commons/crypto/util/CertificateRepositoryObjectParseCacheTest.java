@@ -0,0 +1,165 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import net.ripe.rpki.commons.validation.ValidationCheck;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static net.ripe.rpki.commons.validation.ValidationString.*;
+import static org.junit.Assert.*;
+
+public class CertificateRepositoryObjectParseCacheTest {
+
+    private final CertificateRepositoryObjectParseCache subject = new CertificateRepositoryObjectParseCache(1024 * 1024);
+
+    @Test
+    public void shouldReturnCachedObjectWithSameChecks() {
+        RoaCms roaCms = RoaCmsTest.getRoaCms();
+        ValidationResult expected = ValidationResult.withLocation(new ValidationLocation("roa.roa"));
+        CertificateRepositoryObjectFactory.createCertificateRepositoryObject(roaCms.getEncoded(), expected);
+
+        ValidationResult first = ValidationResult.withLocation(new ValidationLocation("roa.roa"));
+        CertificateRepositoryObject parsed = subject.createCertificateRepositoryObject(roaCms.getEncoded(), first);
+        ValidationResult second = ValidationResult.withLocation(new ValidationLocation("other.roa"));
+        CertificateRepositoryObject cached = subject.createCertificateRepositoryObject(roaCms.getEncoded().clone(), second);
+
+        assertEquals(roaCms, parsed);
+        // Validation changes the state of an object, so every caller gets its own.
+        assertNotSame(parsed, cached);
+        assertEquals(parsed, cached);
+        assertEquals(1, subject.getMissCount());
+        assertEquals(1, subject.getHitCount());
+        assertEquals(1, subject.size());
+
+        assertEquals(new HashSet<>(expected.getAllValidationChecksForCurrentLocation()), new HashSet<>(first.getAllValidationChecksForCurrentLocation()));
+        assertEquals(expected.getAllValidationChecksForCurrentLocation().size(), second.getAllValidationChecksForCurrentLocation().size());
+        assertEquals(expected.hasNoFailuresOrWarnings(), second.hasNoFailuresOrWarnings());
+        assertArrayEquals(new String[]{"other.roa"}, second.getResultForCurrentLocation(KNOWN_OBJECT_TYPE).getParams());
+    }
+
+    @Test
+    public void shouldCacheFailedParses() {
+        byte[] encoded = {0, 1};
+
+        ValidationResult first = ValidationResult.withLocation(new ValidationLocation("certificate.cer"));
+        assertNull(subject.createCertificateRepositoryObject(encoded, first));
+        ValidationResult second = ValidationResult.withLocation(new ValidationLocation("certificate.cer"));
+        assertNull(subject.createCertificateRepositoryObject(encoded, second));
+
+        assertEquals(1, subject.getHitCount());
+        for (ValidationResult result : new ValidationResult[]{first, second}) {
+            assertEquals(2, result.getAllValidationChecksForCurrentLocation().size());
+            assertTrue(result.getResultForCurrentLocation(KNOWN_OBJECT_TYPE).isOk());
+            assertFalse(result.getResultForCurrentLocation(CERTIFICATE_PARSED).isOk());
+        }
+    }
+
+    @Test
+    public void shouldDistinguishObjectTypesWithSameContent() {
+        X509ResourceCertificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+
+        ValidationResult asCertificate = ValidationResult.withLocation(new ValidationLocation("certificate.cer"));
+        assertEquals(certificate, subject.createCertificateRepositoryObject(certificate.getEncoded(), asCertificate));
+        ValidationResult asRoa = ValidationResult.withLocation(new ValidationLocation("certificate.roa"));
+        assertNull(subject.createCertificateRepositoryObject(certificate.getEncoded(), asRoa));
+
+        assertEquals(0, subject.getHitCount());
+        assertEquals(2, subject.size());
+        assertTrue(asRoa.hasFailures());
+    }
+
+    @Test
+    public void shouldReturnNewCertificatesButShareCrls() {
+        X509ResourceCertificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+        X509Crl crl = X509CrlTest.createCrl();
+
+        CertificateRepositoryObject firstCertificate = subject.createCertificateRepositoryObject(certificate.getEncoded(), ValidationResult.withLocation("certificate.cer"));
+        CertificateRepositoryObject secondCertificate = subject.createCertificateRepositoryObject(certificate.getEncoded(), ValidationResult.withLocation("certificate.cer"));
+        CertificateRepositoryObject firstCrl = subject.createCertificateRepositoryObject(crl.getEncoded(), ValidationResult.withLocation("crl.crl"));
+        CertificateRepositoryObject secondCrl = subject.createCertificateRepositoryObject(crl.getEncoded(), ValidationResult.withLocation("crl.crl"));
+
+        assertTrue(secondCertificate instanceof X509ResourceCertificate);
+        assertNotSame(firstCertificate, secondCertificate);
+        assertEquals(certificate, secondCertificate);
+        assertSame(firstCrl, secondCrl);
+        assertEquals(crl, secondCrl);
+        assertEquals(2, subject.getHitCount());
+    }
+
+    @Test
+    public void shouldNotCacheUnknownObjectTypes() {
+        ValidationResult result = ValidationResult.withLocation(new ValidationLocation("file.txt"));
+
+        subject.createCertificateRepositoryObject(new byte[]{0, 1}, result);
+
+        assertEquals(0, subject.size());
+        assertFalse(result.getResultForCurrentLocation(KNOWN_OBJECT_TYPE).isOk());
+    }
+
+    @Test
+    public void shouldEvictWhenEncodedSizeExceedsMaximum() {
+        CertificateRepositoryObjectParseCache small = new CertificateRepositoryObjectParseCache(16);
+
+        for (int i = 0; i < 10; i++) {
+            ValidationResult result = ValidationResult.withLocation(new ValidationLocation("certificate.cer"));
+            small.createCertificateRepositoryObject(new byte[]{0, (byte) i, 0, 0, 0, 0, 0, 0}, result);
+        }
+
+        assertTrue(small.size() <= 2);
+        assertTrue(small.getEvictionCount() >= 8);
+    }
+
+    @Test
+    public void shouldStoreChecksOnlyOnce() {
+        RoaCms roaCms = RoaCmsTest.getRoaCms();
+        ValidationResult result = ValidationResult.withLocation(new ValidationLocation("roa.roa"));
+
+        subject.createCertificateRepositoryObject(roaCms.getEncoded(), result);
+
+        int knownObjectTypeChecks = 0;
+        for (ValidationCheck check : result.getAllValidationChecksForCurrentLocation()) {
+            if (KNOWN_OBJECT_TYPE.equals(check.getKey())) {
+                knownObjectTypeChecks++;
+            }
+        }
+        assertEquals(1, knownObjectTypeChecks);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.x509cert;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.SignatureException;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.SECOND_TEST_KEY_PAIR;
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.TEST_KEY_PAIR;
+import static org.junit.Assert.*;
+
+public class SignatureVerificationCacheTest {
+
+    private final X509ResourceCertificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate(TEST_KEY_PAIR);
+
+    private final SignatureVerificationCache subject = new SignatureVerificationCache(100);
+
+    @Test
+    public void shouldVerifyOnlyOnce() throws Exception {
+        subject.verify(certificate, TEST_KEY_PAIR.getPublic());
+        subject.verify(certificate, TEST_KEY_PAIR.getPublic());
+
+        assertEquals(1, subject.getMissCount());
+        assertEquals(1, subject.getHitCount());
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void shouldNotRememberFailedVerification() throws InvalidKeyException {
+        for (int i = 0; i < 2; i++) {
+            try {
+                subject.verify(certificate, SECOND_TEST_KEY_PAIR.getPublic());
+                fail("signature should not verify");
+            } catch (SignatureException expected) {
+                // expected
+            }
+        }
+
+        assertEquals(0, subject.size());
+        assertEquals(0, subject.getHitCount());
+    }
+
+    @Test
+    public void shouldNotUseVerificationWithOtherKey() throws Exception {
+        subject.verify(certificate, TEST_KEY_PAIR.getPublic());
+
+        try {
+            subject.verify(certificate, SECOND_TEST_KEY_PAIR.getPublic());
+            fail("signature should not verify");
+        } catch (SignatureException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldReadWrittenVerifications() throws Exception {
+        subject.verify(certificate, TEST_KEY_PAIR.getPublic());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        subject.writeTo(out);
+
+        SignatureVerificationCache restored = new SignatureVerificationCache(100);
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        restored.verify(certificate, TEST_KEY_PAIR.getPublic());
+
+        assertEquals(1, restored.size());
+        assertEquals(1, restored.getHitCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownFormat() throws IOException {
+        subject.readFrom(new ByteArrayInputStream(new byte[]{0, 0, 0, 2, 0, 0, 0, 0}));
+    }
+
+    @Test
+    public void shouldKeepMostRecentVerificationsWhenReadingMoreThanMaximumSize() throws Exception {
+        subject.verify(certificate, TEST_KEY_PAIR.getPublic());
+        subject.verify(X509ResourceCertificateTest.createSelfSignedCaResourceCertificate(SECOND_TEST_KEY_PAIR), SECOND_TEST_KEY_PAIR.getPublic());
+        assertEquals(2, subject.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        subject.writeTo(out);
+
+        SignatureVerificationCache small = new SignatureVerificationCache(1);
+        small.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(1, small.size());
+    }
+}
@@ -32,6 +32,7 @@ package net.ripe.rpki.commons.interop;
 import com.google.common.io.Files;
 import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
 import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.ValidationString;
 import org.junit.Test;
 
 import java.io.File;
@@ -58,6 +59,30 @@ public class BBNRoaConformanceTest {
     }
 
 
+    @Test
+    public void shouldRejectRoaWithWrongSignerIdentifier() throws IOException {
+        // SignerIdentifier does not match the EE certificate 6488#2.1.6.3
+        ValidationResult result = parseRoaWithResult("root/badCMSSigInfoBadSid.roa");
+        assertTrue(result.hasFailures());
+        assertFalse(result.getResultForCurrentLocation(ValidationString.SIGNER_ID_MATCH).isOk());
+    }
+
+    @Test
+    public void shouldParseRoaWithEmbeddedEeCertificate() throws IOException {
+        ValidationResult result = parseRoaWithResult("root/goodROANothingWrong.roa");
+        assertFalse(result.hasFailures());
+        assertTrue(result.getResultForCurrentLocation(ValidationString.CERTIFICATE_PARSED).isOk());
+        assertTrue(result.getResultForCurrentLocation(ValidationString.SIGNER_ID_MATCH).isOk());
+    }
+
+    private ValidationResult parseRoaWithResult(String roa) throws IOException {
+        File file = new File(PATH_TO_BBN_OBJECTS, roa);
+        byte[] encoded = Files.toByteArray(file);
+        ValidationResult result = ValidationResult.withLocation(file.getName());
+        new RoaCmsParser().parse(result, encoded);
+        return result;
+    }
+
     private boolean parseRoa(String roa) throws IOException {
         File file = new File(PATH_TO_BBN_OBJECTS, roa);
         byte[] encoded = Files.toByteArray(file);
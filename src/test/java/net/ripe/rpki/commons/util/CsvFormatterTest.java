@@ -152,4 +152,42 @@ public class CsvFormatterTest {
         Assert.assertEquals("heading1,heading2\nsome text,\"more stuff\"\n", writer.toString());
     }
 
+    @Test
+    public void shouldStreamLinesAsTheyAreAdded() throws IOException {
+        subject.addColumn("heading1");
+        subject.addQuotedColumn("heading2");
+
+        StringWriter writer = new StringWriter();
+        CsvFormatter.CsvStream stream = subject.streamWithHeaders(writer);
+        stream.addLine("some text", "more stuff");
+        stream.flush();
+        Assert.assertEquals("heading1,heading2\nsome text,\"more stuff\"\n", writer.toString());
+
+        stream.addLine(null, null);
+        stream.close();
+        Assert.assertEquals("heading1,heading2\nsome text,\"more stuff\"\n,\"\"\n", writer.toString());
+    }
+
+    @Test
+    public void shouldQuoteAndEscapeStreamedValues() throws IOException {
+        subject = new CsvFormatter(";");
+        subject.addColumn("heading1");
+        subject.addQuotedColumn("heading2");
+
+        StringWriter writer = new StringWriter();
+        try (CsvFormatter.CsvStream stream = subject.streamWithoutHeaders(writer)) {
+            stream.addLine("a;b", "say \"hi\"");
+            stream.addLine("two\nlines", "\"");
+            stream.addLine("plain, text", "");
+        }
+
+        Assert.assertEquals("\"a;b\";\"say \"\"hi\"\"\"\n\"two\nlines\";\"\"\"\"\nplain, text;\"\"\n", writer.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectStreamedLinesWithWrongNumberOfElements() throws IOException {
+        subject.addColumn("heading1");
+
+        subject.streamWithoutHeaders(new StringWriter()).addLine("a", "b");
+    }
 }
@@ -89,6 +89,23 @@ public class CertificateRepositoryObjectValidationContextTest {
         assertEquals(subject.getResources(), childContext.getResources());
     }
 
+    @Test
+    public void shouldShareResourcesWithCertificateAndParent() {
+        assertSame(certificate.getImmutableResources(), subject.getImmutableResources());
+
+        CertificateRepositoryObjectValidationContext childContext = subject.createChildContext(childLocation, certificateWithInheritedResources);
+        assertSame(subject.getImmutableResources(), childContext.getImmutableResources());
+    }
+
+    @Test
+    public void shouldRemoveOverclaimingResourcesFromChildContext() {
+        X509ResourceCertificate childCertificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate(IpResourceSet.parse("10.8.0.0/16, 10.10.0.0/16"));
+        subject.addOverclaiming(IpResourceSet.parse("10.8.0.0/15"));
+
+        CertificateRepositoryObjectValidationContext childContext = subject.createChildContext(childLocation, childCertificate);
+        assertEquals(IpResourceSet.parse("10.10.0.0/16"), childContext.getResources());
+    }
+
     @Test
     public void shouldUpdateLocationAndCertificateForChildCertificate() {
         CertificateRepositoryObjectValidationContext childContext = subject.createChildContext(childLocation, certificateWithInheritedResources);
@@ -0,0 +1,228 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.util.UTC;
+import org.joda.time.DateTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class FileValidationStateStoreTest {
+
+    private static final DateTime NOW = UTC.dateTime().withMillisOfSecond(0);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadStoredOutcomesWhenOpenedAgain() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        ValidationState state = ValidationState.of(Arrays.asList(new ValidationCheck(ValidationStatus.WARNING, ValidationString.CRLDP_OMITTED, "a", "é")), NOW, NOW.plusHours(1));
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            store.put(key(1, 1), state);
+            store.put(key(2, 1), state);
+            store.put(key(3, 1), state);
+            store.remove(key(2, 1));
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertEquals(2, store.size());
+            assertNull(store.get(key(2, 1)));
+            assertNull(store.get(key(1, 2)));
+            ValidationState read = store.get(key(1, 1));
+            assertEquals(state.getChecks(), read.getChecks());
+            assertEquals(NOW, read.getValidatedAt());
+            assertEquals(NOW.plusHours(1), read.getRecheckAt());
+        }
+    }
+
+    @Test
+    public void shouldKeepLastOutcomeForKey() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            store.put(key(1, 1), ValidationState.of(Collections.emptyList(), NOW, null));
+            store.put(key(1, 1), ValidationState.of(Collections.emptyList(), NOW.plusHours(1), null));
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertEquals(NOW.plusHours(1), store.get(key(1, 1)).getValidatedAt());
+            assertNull(store.get(key(1, 1)).getRecheckAt());
+        }
+    }
+
+    @Test
+    public void shouldDropPartlyWrittenRecord() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            store.put(key(1, 1), ValidationState.of(Collections.emptyList(), NOW, null));
+            store.put(key(2, 1), ValidationState.of(Collections.emptyList(), NOW, null));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertEquals(1, store.size());
+            store.put(key(3, 1), ValidationState.of(Collections.emptyList(), NOW, null));
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertNotNull(store.get(key(1, 1)));
+            assertNull(store.get(key(2, 1)));
+            assertNotNull(store.get(key(3, 1)));
+        }
+    }
+
+    @Test
+    public void shouldCompactLog() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(key(1, 1), ValidationState.of(Collections.emptyList(), NOW.plusMillis(i), null));
+            }
+            store.flush();
+            long size = Files.size(file);
+
+            store.compact(NOW.plusMillis(99));
+
+            assertTrue(Files.size(file) < size / 50);
+            store.put(key(2, 1), ValidationState.of(Collections.emptyList(), NOW, null));
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertEquals(2, store.size());
+            assertEquals(NOW.plusMillis(99), store.get(key(1, 1)).getValidatedAt());
+        }
+    }
+
+    @Test
+    public void shouldKeepStoringWhenCompactingFails() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        // A non-empty directory in place of the temporary file makes compacting fail.
+        Path temp = Files.createDirectory(file.resolveSibling("state.tmp"));
+        Files.createFile(temp.resolve("file"));
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            store.put(key(1, 1), ValidationState.of(Collections.emptyList(), NOW, null));
+            try {
+                store.compact(NOW);
+                fail("compacting should fail");
+            } catch (IOException expected) {
+                // The store keeps appending to the current file.
+            }
+            store.put(key(2, 1), ValidationState.of(Collections.emptyList(), NOW, null));
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    public void shouldRemoveOutcomesThatAreNoLongerCurrentWhenCompacting() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            store.put(key(1, 1), ValidationState.of(Collections.emptyList(), NOW, NOW.plusHours(1)));
+            store.put(key(2, 1), ValidationState.of(Collections.emptyList(), NOW, NOW.plusHours(3)));
+
+            store.compact(NOW.plusHours(2));
+
+            assertNull(store.get(key(1, 1)));
+            assertNotNull(store.get(key(2, 1)));
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertEquals(1, store.size());
+            assertNotNull(store.get(key(2, 1)));
+        }
+    }
+
+    @Test
+    public void shouldRetainOutcomesOfGivenKeys() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        ValidationState state = ValidationState.of(Collections.emptyList(), NOW, null);
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            store.put(key(1, 1), state);
+            store.put(key(2, 1), state);
+            store.put(key(3, 1), state);
+
+            store.retainAll(new HashSet<>(Arrays.asList(key(1, 1), key(3, 1), key(4, 1))));
+
+            assertEquals(2, store.size());
+            assertNull(store.get(key(2, 1)));
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertEquals(2, store.size());
+            assertNull(store.get(key(2, 1)));
+        }
+    }
+
+    @Test
+    public void shouldKeepNullParameters() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        ValidationState state = ValidationState.of(Arrays.asList(new ValidationCheck(ValidationStatus.WARNING, ValidationString.CRLDP_OMITTED, null, "null")), NOW, null);
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            store.put(key(1, 1), state);
+        }
+
+        try (FileValidationStateStore store = FileValidationStateStore.open(file)) {
+            assertArrayEquals(new String[]{null, "null"}, store.get(key(1, 1)).getChecks().get(0).getParams());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFiles() throws IOException {
+        Path file = folder.newFile("other").toPath();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        FileValidationStateStore.open(file);
+    }
+
+    private static ValidationStateKey key(int object, int context) {
+        byte[] objectHash = new byte[ValidationStateKey.HASH_LENGTH];
+        byte[] contextHash = new byte[ValidationStateKey.HASH_LENGTH];
+        objectHash[0] = (byte) object;
+        contextHash[0] = (byte) context;
+        return ValidationStateKey.of(objectHash, contextHash);
+    }
+}
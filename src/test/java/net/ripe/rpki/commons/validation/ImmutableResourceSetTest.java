@@ -0,0 +1,166 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import com.google.common.testing.EqualsTester;
+import net.ripe.ipresource.IpResourceRange;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImmutableResourceSetTest {
+
+    private static final ImmutableResourceSet RESOURCES = ImmutableResourceSet.parse("AS1-AS10, AS64512, 10.0.0.0/8, 192.168.0.0/16, 2001:db8::/32");
+
+    @Test
+    public void shouldKeepResourcesOfIpResourceSet() {
+        IpResourceSet resources = IpResourceSet.parse("AS1, AS3-AS4, 10.0.0.0/8, 11.0.0.0/8, 192.168.0.1, ::/0");
+        ImmutableResourceSet subject = ImmutableResourceSet.of(resources);
+
+        assertEquals(resources, subject.toIpResourceSet());
+        assertEquals(resources.toString(), subject.toString());
+        assertEquals(5, subject.getIntervalCount());
+        assertTrue(ImmutableResourceSet.of(new IpResourceSet()).isEmpty());
+        assertSame(ImmutableResourceSet.empty(), ImmutableResourceSet.of(new IpResourceSet()));
+    }
+
+    @Test
+    public void shouldReturnMutableCopy() {
+        IpResourceSet copy = RESOURCES.toIpResourceSet();
+        copy.removeAll(IpResourceSet.parse("10.0.0.0/8"));
+
+        assertEquals(IpResourceSet.parse("AS1-AS10, AS64512, 10.0.0.0/8, 192.168.0.0/16, 2001:db8::/32"), RESOURCES.toIpResourceSet());
+    }
+
+    @Test
+    public void shouldContainTypes() {
+        ImmutableResourceSet subject = ImmutableResourceSet.parse("AS1, 2001:db8::/32");
+
+        assertTrue(subject.containsType(IpResourceType.ASN));
+        assertFalse(subject.containsType(IpResourceType.IPv4));
+        assertTrue(subject.containsType(IpResourceType.IPv6));
+    }
+
+    @Test
+    public void shouldContainSubsets() {
+        assertTrue(RESOURCES.contains(RESOURCES));
+        assertTrue(RESOURCES.contains(ImmutableResourceSet.empty()));
+        assertTrue(RESOURCES.contains(ImmutableResourceSet.parse("AS5, 10.1.0.0/16, 192.168.255.255, 2001:db8:ffff::/48")));
+        assertFalse(RESOURCES.contains(ImmutableResourceSet.parse("AS11")));
+        assertFalse(RESOURCES.contains(ImmutableResourceSet.parse("10.0.0.0/7")));
+        assertFalse(RESOURCES.contains(ImmutableResourceSet.parse("172.16.0.0/12")));
+        assertFalse(RESOURCES.contains(ImmutableResourceSet.parse("::/0")));
+        assertFalse(ImmutableResourceSet.empty().contains(RESOURCES));
+    }
+
+    @Test
+    public void shouldReturnSameInstanceWhenNothingChanges() {
+        ImmutableResourceSet other = ImmutableResourceSet.parse("AS20, 172.16.0.0/12");
+
+        assertSame(RESOURCES, RESOURCES.difference(other));
+        assertSame(RESOURCES, RESOURCES.difference(ImmutableResourceSet.empty()));
+        assertSame(RESOURCES, RESOURCES.union(ImmutableResourceSet.parse("10.1.0.0/16")));
+        assertSame(RESOURCES, ImmutableResourceSet.parse("10.1.0.0/16").union(RESOURCES));
+        assertSame(RESOURCES, RESOURCES.retainTypes(EnumSet.allOf(IpResourceType.class)));
+        assertSame(other, other.retainTypes(EnumSet.of(IpResourceType.ASN, IpResourceType.IPv4)));
+    }
+
+    @Test
+    public void shouldRetainTypes() {
+        assertEquals(ImmutableResourceSet.parse("AS1-AS10, AS64512, 2001:db8::/32"), RESOURCES.retainTypes(EnumSet.of(IpResourceType.ASN, IpResourceType.IPv6)));
+        assertEquals(ImmutableResourceSet.empty(), RESOURCES.retainTypes(EnumSet.noneOf(IpResourceType.class)));
+    }
+
+    @Test
+    public void shouldHandleLargestIpv6Addresses() {
+        ImmutableResourceSet all = ImmutableResourceSet.parse("::/0");
+        ImmutableResourceSet last = ImmutableResourceSet.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff");
+        ImmutableResourceSet boundary = ImmutableResourceSet.parse("::ffff:ffff:ffff:ffff-0:0:0:1::");
+
+        assertEquals(ImmutableResourceSet.parse("::-ffff:ffff:ffff:ffff:ffff:ffff:ffff:fffe"), all.difference(last));
+        assertEquals(all, all.difference(last).union(last));
+        assertEquals(ImmutableResourceSet.parse("::-::ffff:ffff:ffff:fffe, 0:0:0:1::1-ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"), all.difference(boundary));
+        assertEquals(1, all.difference(last).union(last).getIntervalCount());
+    }
+
+    @Test
+    public void shouldBeEqualForSameResources() {
+        new EqualsTester()
+                .addEqualityGroup(RESOURCES, ImmutableResourceSet.of(RESOURCES.toIpResourceSet()), ImmutableResourceSet.parse("AS1-AS5, AS6-AS10, AS64512, 10.0.0.0/9, 10.128.0.0/9, 192.168.0.0/16, 2001:db8::/32"))
+                .addEqualityGroup(ImmutableResourceSet.parse("AS1-AS10"))
+                .addEqualityGroup(ImmutableResourceSet.parse("0.0.0.1-0.0.0.10"))
+                .addEqualityGroup(ImmutableResourceSet.empty())
+                .testEquals();
+    }
+
+    @Test
+    public void shouldMatchIpResourceSetOperations() {
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            IpResourceSet a = randomResources(random);
+            IpResourceSet b = randomResources(random);
+            ImmutableResourceSet immutableA = ImmutableResourceSet.of(a);
+            ImmutableResourceSet immutableB = ImmutableResourceSet.of(b);
+
+            IpResourceSet difference = new IpResourceSet(a);
+            difference.removeAll(b);
+            IpResourceSet union = new IpResourceSet(a);
+            union.addAll(b);
+            IpResourceSet intersection = new IpResourceSet(a);
+            intersection.retainAll(b);
+
+            assertEquals(a + " contains " + b, a.contains(b), immutableA.contains(immutableB));
+            assertEquals(a + " intersects " + b, !intersection.isEmpty(), immutableA.intersects(immutableB));
+            assertEquals(a + " minus " + b, difference, immutableA.difference(immutableB).toIpResourceSet());
+            assertEquals(a + " plus " + b, union, immutableA.union(immutableB).toIpResourceSet());
+            assertEquals(ImmutableResourceSet.of(union), immutableA.union(immutableB));
+        }
+    }
+
+    private static IpResourceSet randomResources(Random random) {
+        IpResourceSet result = new IpResourceSet();
+        int count = random.nextInt(5);
+        for (int i = 0; i < count; i++) {
+            IpResourceType type = IpResourceType.values()[random.nextInt(3)];
+            // Small values around the start of the range, and for IPv6 also around the boundary of the low word.
+            BigInteger base = type == IpResourceType.IPv6 && random.nextBoolean() ? BigInteger.ONE.shiftLeft(64).subtract(BigInteger.valueOf(16)) : BigInteger.ZERO;
+            BigInteger start = base.add(BigInteger.valueOf(random.nextInt(32)));
+            BigInteger end = start.add(BigInteger.valueOf(random.nextInt(8)));
+            result.add(IpResourceRange.assemble(start, end, type));
+        }
+        return result;
+    }
+}
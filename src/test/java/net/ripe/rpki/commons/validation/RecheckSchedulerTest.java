@@ -0,0 +1,108 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.util.UTC;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class RecheckSchedulerTest {
+
+    private static final DateTime NOW = UTC.dateTime();
+
+    private final RecheckScheduler<String> subject = new RecheckScheduler<>();
+
+    @Test
+    public void shouldPollDueKeysInOrderOfDeadline() {
+        subject.schedule("c", NOW.plusHours(3));
+        subject.schedule("a", NOW.plusHours(1));
+        subject.schedule("b", NOW.plusHours(2));
+
+        assertEquals(NOW.plusHours(1), subject.getNextDeadline());
+        assertEquals(Collections.emptyList(), subject.pollDue(NOW));
+        assertEquals(Arrays.asList("a", "b"), subject.pollDue(NOW.plusHours(2)));
+        assertEquals(1, subject.size());
+        assertEquals(NOW.plusHours(3), subject.getNextDeadline());
+    }
+
+    @Test
+    public void shouldReplaceDeadlineWhenRescheduled() {
+        subject.schedule("a", NOW.plusHours(1));
+        subject.schedule("b", NOW.plusHours(2));
+        subject.schedule("a", NOW.plusHours(3));
+
+        assertEquals(NOW.plusHours(3), subject.getDeadline("a"));
+        assertEquals(Arrays.asList("b"), subject.pollDue(NOW.plusHours(2)));
+        assertEquals(Arrays.asList("a"), subject.pollDue(NOW.plusHours(3)));
+        assertNull(subject.getNextDeadline());
+    }
+
+    @Test
+    public void shouldCancel() {
+        subject.schedule("a", NOW.plusHours(1));
+        subject.schedule("b", NOW.plusHours(1));
+        subject.cancel("a");
+        subject.schedule("b", null);
+
+        assertEquals(0, subject.size());
+        assertNull(subject.getNextDeadline());
+        assertEquals(Collections.emptyList(), subject.pollDue(NOW.plusHours(1)));
+    }
+
+    @Test
+    public void shouldScheduleAtNextStatusChangeOfObject() {
+        X509Crl crl = X509CrlTest.createCrl();
+        ValidationOptions options = ValidationOptions.strictValidation();
+
+        DateTime deadline = subject.schedule("crl", crl, options, crl.getThisUpdateTime());
+
+        assertEquals(crl.getNextUpdateTime().plusMillis(1), deadline);
+        assertEquals(deadline, subject.getDeadline("crl"));
+        assertNull(subject.schedule("crl", crl, options, crl.getNextUpdateTime().plusMillis(1)));
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void shouldNotKeepOutdatedDeadlines() {
+        for (int i = 0; i < 10_000; i++) {
+            subject.schedule("a", NOW.plusMillis(i));
+        }
+
+        assertEquals(1, subject.size());
+        assertEquals(NOW.plusMillis(9_999), subject.getNextDeadline());
+    }
+}
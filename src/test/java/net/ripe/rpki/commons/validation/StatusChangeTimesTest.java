@@ -0,0 +1,96 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsTest;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import static net.ripe.rpki.commons.validation.StatusChangeTimes.nextStatusChangeTime;
+import static org.junit.Assert.*;
+
+public class StatusChangeTimesTest {
+
+    private static final ValidationOptions LENIENT = ValidationOptions.backCompatibleRipeNccValidator();
+    private static final ValidationOptions STALE = ValidationOptions.withStaleConfigurations(Duration.standardHours(2), Duration.standardHours(3));
+
+    @Test
+    public void shouldChangeAtValidityPeriodOfCertificate() {
+        X509ResourceCertificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+        ValidityPeriod validityPeriod = certificate.getValidityPeriod();
+
+        assertEquals(validityPeriod.getNotValidBefore(), nextStatusChangeTime(certificate, LENIENT, validityPeriod.getNotValidBefore().minusMillis(1)));
+        assertEquals(validityPeriod.getNotValidAfter().plusMillis(1), nextStatusChangeTime(certificate, LENIENT, validityPeriod.getNotValidBefore()));
+        assertNull(nextStatusChangeTime(certificate, LENIENT, validityPeriod.getNotValidAfter().plusMillis(1)));
+    }
+
+    @Test
+    public void shouldChangeAtUpdateTimesAndGracePeriodOfCrl() {
+        X509Crl crl = X509CrlTest.createCrl();
+        DateTime nextUpdateTime = crl.getNextUpdateTime();
+
+        assertEquals(crl.getThisUpdateTime(), nextStatusChangeTime(crl, LENIENT, crl.getThisUpdateTime().minusMillis(1)));
+        assertEquals(nextUpdateTime.plusMillis(1), nextStatusChangeTime(crl, LENIENT, crl.getThisUpdateTime()));
+        assertNull(nextStatusChangeTime(crl, LENIENT, nextUpdateTime.plusMillis(1)));
+
+        assertEquals(nextUpdateTime.plusMillis(1), nextStatusChangeTime(crl, STALE, crl.getThisUpdateTime()));
+        assertEquals(nextUpdateTime.plusHours(2).plusMillis(1), nextStatusChangeTime(crl, STALE, nextUpdateTime.plusMillis(1)));
+    }
+
+    @Test
+    public void shouldChangeAtUpdateTimesOfManifestAndValidityOfEeCertificate() {
+        ManifestCms manifest = ManifestCmsTest.getRootManifestCms();
+        ValidityPeriod eeValidity = manifest.getCertificate().getValidityPeriod();
+        DateTime nextUpdateTime = manifest.getNextUpdateTime();
+
+        assertEquals(eeValidity.getNotValidBefore(), nextStatusChangeTime(manifest, STALE, eeValidity.getNotValidBefore().minusMillis(1)));
+        assertEquals(manifest.getThisUpdateTime(), nextStatusChangeTime(manifest, STALE, eeValidity.getNotValidBefore()));
+        assertEquals(nextUpdateTime.plusMillis(1), nextStatusChangeTime(manifest, STALE, manifest.getThisUpdateTime()));
+        assertEquals(nextUpdateTime.plusHours(3).plusMillis(1), nextStatusChangeTime(manifest, STALE, nextUpdateTime.plusMillis(1)));
+        assertEquals(eeValidity.getNotValidAfter().plusMillis(1), nextStatusChangeTime(manifest, STALE, nextUpdateTime.plusHours(4)));
+    }
+
+    @Test
+    public void shouldReturnEarliestMoment() {
+        DateTime now = new DateTime();
+
+        assertNull(StatusChangeTimes.earliest(null, null));
+        assertEquals(now, StatusChangeTimes.earliest(now, null));
+        assertEquals(now, StatusChangeTimes.earliest(null, now));
+        assertEquals(now, StatusChangeTimes.earliest(now.plusMillis(1), now));
+    }
+}
@@ -30,6 +30,7 @@
 package net.ripe.rpki.commons.validation;
 
 import net.ripe.rpki.commons.FixedDateRule;
+import org.apache.commons.lang3.SerializationUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.Rule;
@@ -37,6 +38,7 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -224,4 +226,191 @@ public class ValidationResultTest {
         assertFalse(result.isStoringPassingChecks());
         assertEquals(0, result.getAllValidationChecksForCurrentLocation().size());
     }
+
+    @Test
+    public void should_store_passed_checks_in_compact_storage() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        assertTrue(result.isCompactStorage());
+        result.pass("passed1");
+        result.pass("passed2", "with", "params");
+        result.error("error", "param");
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.ERROR, "error", "param"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed1"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed2", "with", "params")
+        ), result.getAllValidationChecksForCurrentLocation());
+        assertEquals(new ValidationCheck(ValidationStatus.PASSED, "passed2", "with", "params"), result.getResultForCurrentLocation("passed2"));
+    }
+
+    @Test
+    public void should_keep_passed_checks_when_switching_to_compact_storage() {
+        result = ValidationResult.withLocation(FIRST_LOCATION);
+        result.pass("passed1", "param");
+        result.withCompactStorage();
+        result.pass("passed2");
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "passed1", "param"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed2")
+        ), result.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_add_all_checks_between_compact_and_regular_storage() {
+        ValidationResult compact = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        compact.pass("compact", "param");
+        ValidationResult regular = ValidationResult.withLocation(FIRST_LOCATION);
+        regular.pass("regular");
+
+        ValidationResult merged = ValidationResult.withLocation(FIRST_LOCATION).addAll(compact).addAll(regular);
+        ValidationResult mergedCompact = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage().addAll(compact).addAll(regular);
+
+        List<ValidationCheck> expected = Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "compact", "param"),
+                new ValidationCheck(ValidationStatus.PASSED, "regular"));
+        assertEquals(expected, merged.getAllValidationChecksForLocation(FIRST_LOCATION));
+        assertEquals(expected, mergedCompact.getAllValidationChecksForLocation(FIRST_LOCATION));
+    }
+
+    @Test
+    public void should_remove_compact_passed_checks_when_invoking_withoutPassingChecks() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        result.pass("passed");
+        result.withoutStoringPassingChecks();
+        result.pass("passed");
+        assertEquals(0, result.getAllValidationChecksForCurrentLocation().size());
+    }
+
+    @Test
+    public void should_serialize_compact_storage() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        result.pass("passed", "param");
+        result.warn("warning");
+
+        ValidationResult copy = SerializationUtils.roundtrip(result);
+
+        assertEquals(result.getAllValidationChecksForCurrentLocation(), copy.getAllValidationChecksForCurrentLocation());
+        copy.pass("after.copy");
+        assertEquals(3, copy.getAllValidationChecksForCurrentLocation().size());
+    }
+
+    @Test
+    public void should_format_object_parameters_of_failures_and_warnings() {
+        result = ValidationResult.withLocation(FIRST_LOCATION);
+        result.rejectIfTrue(true, "error", NOW, 42);
+        result.warnIfTrue(true, "warning", NOW);
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.ERROR, "error", NOW.toString(), "42"),
+                new ValidationCheck(ValidationStatus.WARNING, "warning", NOW.toString())
+        ), result.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_not_format_object_parameters_of_passed_checks_until_read() {
+        CountingParameter parameter = new CountingParameter();
+
+        result = ValidationResult.withLocation(FIRST_LOCATION).withoutStoringPassingChecks();
+        result.rejectIfFalse(true, "passed", parameter);
+        assertEquals(0, parameter.count);
+
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage();
+        result.rejectIfFalse(true, "passed", parameter);
+        assertEquals(0, parameter.count);
+
+        assertEquals(new ValidationCheck(ValidationStatus.PASSED, "passed", "parameter"), result.getResultForCurrentLocation("passed"));
+        assertEquals(1, parameter.count);
+    }
+
+    @Test
+    public void should_fork_empty_result_with_same_location_and_settings() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withoutStoringPassingChecks();
+        result.error("error");
+
+        ValidationResult forked = result.fork();
+
+        assertEquals(FIRST_LOCATION, forked.getCurrentLocation());
+        assertFalse(forked.isStoringPassingChecks());
+        assertTrue(forked.getValidatedLocations().isEmpty());
+        assertTrue(ValidationResult.withLocation(FIRST_LOCATION).withCompactStorage().fork().isCompactStorage());
+    }
+
+    @Test
+    public void should_join_checks_and_metrics_of_forked_result() {
+        result = ValidationResult.withLocation(FIRST_LOCATION);
+        result.error("existing");
+
+        ValidationResult forked = result.fork();
+        forked.pass("passed");
+        forked.setLocation(SECOND_LOCATION).warn("warning").addMetric("name", "value");
+
+        assertSame(result, result.join(forked));
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.ERROR, "existing"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed")
+        ), result.getAllValidationChecksForLocation(FIRST_LOCATION));
+        assertEquals(Arrays.asList(new ValidationCheck(ValidationStatus.WARNING, "warning")), result.getWarnings(SECOND_LOCATION));
+        assertEquals(1, result.getMetrics(SECOND_LOCATION).size());
+        assertTrue("forked result is emptied", forked.getValidatedLocations().isEmpty());
+    }
+
+    @Test
+    public void should_join_results_of_concurrent_workers() throws InterruptedException {
+        result = ValidationResult.withLocation(FIRST_LOCATION);
+        Thread[] workers = new Thread[4];
+        for (int i = 0; i < workers.length; i++) {
+            ValidationResult forked = result.fork();
+            String location = "location-" + i;
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    forked.setLocation(new ValidationLocation(location + "-" + j)).pass("passed");
+                }
+                forked.setLocation(SECOND_LOCATION).error("error");
+                result.join(forked);
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(4001, result.getValidatedLocations().size());
+        assertEquals(4, result.getFailures(SECOND_LOCATION).size());
+    }
+
+    @Test(timeout = 30000)
+    public void should_not_deadlock_when_joining_results_into_each_other() throws InterruptedException {
+        ValidationResult first = ValidationResult.withLocation(FIRST_LOCATION);
+        ValidationResult second = ValidationResult.withLocation(SECOND_LOCATION);
+        Thread[] workers = {
+                new Thread(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        first.join(second);
+                    }
+                }),
+                new Thread(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        second.join(first);
+                    }
+                })
+        };
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private static class CountingParameter {
+        private int count;
+
+        @Override
+        public String toString() {
+            count++;
+            return "parameter";
+        }
+    }
 }
@@ -0,0 +1,89 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.util.UTC;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ValidationStateTest {
+
+    private static final DateTime VALIDATED_AT = UTC.dateTime().withMillisOfSecond(0);
+
+    @Test
+    public void shouldKeepOnlyWarningsAndFailures() {
+        ValidationResult result = ValidationResult.withLocation("object.roa");
+        result.pass(ValidationString.SIGNATURE_VALID);
+        result.warn(ValidationString.CRLDP_OMITTED);
+
+        ValidationState state = ValidationState.of(result, new ValidationLocation("object.roa"), VALIDATED_AT, null);
+
+        assertEquals(Arrays.asList(new ValidationCheck(ValidationStatus.WARNING, ValidationString.CRLDP_OMITTED)), state.getChecks());
+        assertFalse(state.hasFailures());
+    }
+
+    @Test
+    public void shouldBeCurrentUntilRecheckTime() {
+        DateTime recheckAt = VALIDATED_AT.plusHours(1);
+        ValidationState state = ValidationState.of(Arrays.asList(), VALIDATED_AT, recheckAt);
+
+        assertFalse(state.isCurrent(VALIDATED_AT.minusMillis(1)));
+        assertTrue(state.isCurrent(VALIDATED_AT));
+        assertTrue(state.isCurrent(recheckAt.minusMillis(1)));
+        assertFalse(state.isCurrent(recheckAt));
+        assertEquals(recheckAt, state.getRecheckAt());
+    }
+
+    @Test
+    public void shouldNotExpireWithoutRecheckTime() {
+        ValidationState state = ValidationState.of(Arrays.asList(), VALIDATED_AT, null);
+
+        assertNull(state.getRecheckAt());
+        assertTrue(state.isCurrent(VALIDATED_AT.plusYears(100)));
+    }
+
+    @Test
+    public void shouldAddChecksToCurrentLocation() {
+        ValidationState state = ValidationState.of(Arrays.asList(
+                new ValidationCheck(ValidationStatus.ERROR, ValidationString.SIGNATURE_VALID),
+                new ValidationCheck(ValidationStatus.WARNING, ValidationString.CRLDP_OMITTED, "param")), VALIDATED_AT, null);
+        ValidationResult result = ValidationResult.withLocation("other.roa");
+
+        state.addChecksTo(result);
+
+        assertTrue(state.hasFailures());
+        assertTrue(result.hasFailureForCurrentLocation());
+        assertArrayEquals(new String[]{"param"}, result.getResultForCurrentLocation(ValidationString.CRLDP_OMITTED).getParams());
+    }
+}
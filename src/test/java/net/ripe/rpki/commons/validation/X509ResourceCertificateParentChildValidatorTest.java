@@ -39,6 +39,7 @@ import net.ripe.rpki.commons.crypto.ValidityPeriod;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.crl.X509CrlBuilder;
 import net.ripe.rpki.commons.crypto.util.PregeneratedKeyPairFactory;
+import net.ripe.rpki.commons.crypto.x509cert.SignatureVerificationCache;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateBuilder;
 import net.ripe.rpki.commons.util.UTC;
@@ -133,6 +134,31 @@ public class X509ResourceCertificateParentChildValidatorTest {
         assertEquals(ValidationString.SIGNATURE_VALID, result.getFailures(CHILD_VALIDATION_LOCATION).get(0).getKey());
     }
 
+    @Test
+    public void shouldRememberVerifiedSignatures() {
+        SignatureVerificationCache cache = new SignatureVerificationCache(100);
+        options.setSignatureVerificationCache(cache);
+
+        validate(new X509ResourceCertificateParentChildValidator(options, result, root, rootCrl, root.getResources()), child);
+        validate(new X509ResourceCertificateParentChildValidator(options, result, root, rootCrl, root.getResources()), child);
+
+        assertFalse(result.hasFailures());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void shouldRejectInvalidSignatureWithSignatureVerificationCache() {
+        options.setSignatureVerificationCache(new SignatureVerificationCache(100));
+        child = createChildCertificateBuilder().withSigningKeyPair(SECOND_CHILD_KEY_PAIR).build();
+
+        X509ResourceCertificateParentChildValidator validator = new X509ResourceCertificateParentChildValidator(options, result, root, rootCrl, root.getResources());
+        validate(validator, child);
+
+        assertEquals(ValidationString.SIGNATURE_VALID, result.getFailures(CHILD_VALIDATION_LOCATION).get(0).getKey());
+        assertEquals(0, options.getSignatureVerificationCache().size());
+    }
+
     @Test
     public void shouldAcceptSelfSignedSignature() {
         X509ResourceCertificateParentChildValidator validator = new X509ResourceCertificateParentChildValidator(options, result, root, rootCrl, root.getResources());
@@ -175,6 +201,28 @@ public class X509ResourceCertificateParentChildValidatorTest {
 
     }
 
+    @Test
+    public void shouldCheckValidityAtValidationTime() {
+        child = createChildCertificateBuilder().withValidityPeriod(EXPIRED_VALIDITY_PERIOD).build();
+        options.setValidationTime(EXPIRED_VALIDITY_PERIOD.getNotValidAfter().minusDays(1));
+
+        X509ResourceCertificateParentChildValidator validator = new X509ResourceCertificateParentChildValidator(options, result, root, rootCrl, root.getResources());
+        validate(validator, child);
+
+        assertFalse(result.getFailuresForAllLocations().toString(), result.hasFailures());
+    }
+
+    @Test
+    public void shouldRejectCertificateNotValidAtValidationTime() {
+        options.setValidationTime(VALIDITY_PERIOD.getNotValidBefore().minusSeconds(1));
+
+        X509ResourceCertificateParentChildValidator validator = new X509ResourceCertificateParentChildValidator(options, result, root, rootCrl, root.getResources());
+        validate(validator, child);
+
+        assertTrue(result.hasFailures());
+        assertEquals(ValidationString.NOT_VALID_BEFORE, result.getFailures(CHILD_VALIDATION_LOCATION).get(0).getKey());
+    }
+
     @Test
     public void shouldRejectInvalidIssuer() {
         child = createChildCertificateBuilder().withIssuerDN(SECOND_CHILD_CERTIFICATE_NAME).build();
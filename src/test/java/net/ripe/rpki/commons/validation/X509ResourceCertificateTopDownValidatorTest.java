@@ -0,0 +1,318 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.crl.CrlLocator;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsBuilder;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsTest;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlBuilder;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateInformationAccessDescriptor;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import net.ripe.rpki.commons.validation.objectvalidators.RepositoryObjectSource;
+import net.ripe.rpki.commons.validation.objectvalidators.X509ResourceCertificateTopDownValidator;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Walks the BBN conformance repository in <code>src/test/resources/conformance</code>.
+ */
+public class X509ResourceCertificateTopDownValidatorTest {
+
+    private static final File CONFORMANCE_DIRECTORY = new File("src/test/resources/conformance");
+    private static final URI CONFORMANCE_URI = URI.create("rsync://rpki.bbn.com/conformance/");
+    private static final URI TRUST_ANCHOR_URI = CONFORMANCE_URI.resolve("root.cer");
+
+    private final Map<URI, byte[]> replacedObjects = new ConcurrentHashMap<>();
+    private final RepositoryObjectSource objectSource = uri -> replacedObjects.containsKey(uri) ? replacedObjects.get(uri) : read(uri);
+    private final Map<URI, X509Crl> crls = new ConcurrentHashMap<>();
+    private final AtomicInteger crlLookups = new AtomicInteger();
+    private final CrlLocator crlLocator = (uri, context, result) -> {
+        crlLookups.incrementAndGet();
+        byte[] encoded = read(uri);
+        return encoded == null ? null : crls.computeIfAbsent(uri, x -> X509Crl.parseDerEncoded(encoded, ValidationResult.withLocation(uri)));
+    };
+
+    private X509ResourceCertificate trustAnchor;
+
+    @Before
+    public void setUp() {
+        X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
+        parser.parse(TRUST_ANCHOR_URI.toString(), read(TRUST_ANCHOR_URI));
+        trustAnchor = parser.getCertificate();
+
+        X509Crl rootCrl = X509Crl.parseDerEncoded(read(CONFORMANCE_URI.resolve("root/root.crl")), ValidationResult.withLocation("root.crl"));
+        DateTimeUtils.setCurrentMillisFixed(rootCrl.getThisUpdateTime().plusMinutes(1).getMillis());
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void shouldValidateObjectsOfAllPublicationPoints() {
+        X509ResourceCertificateTopDownValidator subject = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2));
+        ValidationResult result = subject.getValidationResult();
+        Map<URI, CertificateRepositoryObject> validatedObjects = subject.getValidatedObjects();
+
+        assertTrue(validatedObjects.containsKey(CONFORMANCE_URI.resolve("root/root.crl")));
+        assertTrue(validatedObjects.containsKey(CONFORMANCE_URI.resolve("root/goodROANothingWrong.roa")));
+        assertTrue("objects of child publication point", validatedObjects.containsKey(CONFORMANCE_URI.resolve("root/CRLNumberZero/goodCRLNumberZero.crl")));
+        assertFalse(validatedObjects.containsKey(CONFORMANCE_URI.resolve("root/badROAWrongType.roa")));
+
+        assertEquals(ValidationString.VALIDATOR_CA_SHOULD_HAVE_MANIFEST, result.getFailures(new ValidationLocation(CONFORMANCE_URI.resolve("root/MFTVersion0.cer"))).get(0).getKey());
+        assertEquals(ValidationString.VALIDATOR_MANIFEST_ENTRY_FOUND, result.getFailures(new ValidationLocation(CONFORMANCE_URI.resolve("root/MFTUnkownFileExtension/foo.nul"))).get(0).getKey());
+        assertNotNull(result.getResult(new ValidationLocation(CONFORMANCE_URI.resolve("root/goodROANothingWrong.roa")), ValidationString.VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES));
+    }
+
+    @Test
+    public void shouldRejectObjectsNotMatchingManifestHash() {
+        URI uri = CONFORMANCE_URI.resolve("root/goodROANothingWrong.roa");
+        replacedObjects.put(uri, read(CONFORMANCE_URI.resolve("root/goodROAASIDZero.roa")));
+
+        X509ResourceCertificateTopDownValidator subject = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2), new InMemoryValidationStateStore());
+
+        assertFalse(subject.getValidatedObjects().containsKey(uri));
+        assertEquals(ValidationString.VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES, subject.getValidationResult().getFailures(new ValidationLocation(uri)).get(0).getKey());
+    }
+
+    @Test
+    public void shouldRejectFilesWithTrailingBytes() {
+        // The certificate parses without the trailing bytes, but the file differs from the one on the manifest.
+        URI uri = CONFORMANCE_URI.resolve("root/goodCertResourcesASInherit.cer");
+        byte[] encoded = read(uri);
+        replacedObjects.put(uri, Arrays.copyOf(encoded, encoded.length + 4));
+
+        X509ResourceCertificateTopDownValidator subject = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2), new InMemoryValidationStateStore());
+
+        assertFalse(subject.getValidatedObjects().containsKey(uri));
+        assertEquals(ValidationString.VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES, subject.getValidationResult().getFailures(new ValidationLocation(uri)).get(0).getKey());
+    }
+
+    @Test
+    public void shouldNotDependOnParallelism() {
+        X509ResourceCertificateTopDownValidator sequential = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(1));
+        X509ResourceCertificateTopDownValidator parallel = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(4));
+
+        assertEquals(new ArrayList<>(sequential.getValidatedObjects().keySet()), new ArrayList<>(parallel.getValidatedObjects().keySet()));
+        assertEquals(sequential.getValidationResult().getFailuresForAllLocations(), parallel.getValidationResult().getFailuresForAllLocations());
+        assertEquals(sequential.getValidationResult().getWarnings(), parallel.getValidationResult().getWarnings());
+        for (ValidationLocation location : sequential.getValidationResult().getValidatedLocations()) {
+            assertEquals(sequential.getValidationResult().getAllValidationChecksForLocation(location), parallel.getValidationResult().getAllValidationChecksForLocation(location));
+        }
+    }
+
+    @Test
+    public void shouldNotStorePassingChecksWhenNotStoredByResult() {
+        X509ResourceCertificateTopDownValidator subject = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI).withoutStoringPassingChecks(), new ForkJoinPool(2));
+
+        assertFalse(subject.getValidatedObjects().isEmpty());
+        assertTrue(subject.getValidationResult().getAllValidationChecksForLocation(new ValidationLocation(CONFORMANCE_URI.resolve("root/goodROANothingWrong.roa"))).isEmpty());
+    }
+
+    @Test
+    public void shouldReuseStoredOutcomes() {
+        ValidationStateStore store = new InMemoryValidationStateStore();
+        X509ResourceCertificateTopDownValidator first = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2), store);
+        int firstLookups = crlLookups.getAndSet(0);
+        X509ResourceCertificateTopDownValidator second = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2), store);
+
+        assertTrue(store.size() > 0);
+        assertTrue("objects are not validated again", crlLookups.get() < firstLookups);
+        assertEquals(new ArrayList<>(first.getValidatedObjects().keySet()), new ArrayList<>(second.getValidatedObjects().keySet()));
+        assertEquals(first.getValidationResult().getFailuresForAllLocations(), second.getValidationResult().getFailuresForAllLocations());
+        assertEquals(first.getValidationResult().getWarnings(), second.getValidationResult().getWarnings());
+    }
+
+    @Test
+    public void shouldRestoreRevocationOfReusedObjects() {
+        ValidationStateStore store = new InMemoryValidationStateStore();
+        X509ResourceCertificateTopDownValidator first = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2), store);
+        X509ResourceCertificateTopDownValidator second = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2), store);
+
+        for (Map.Entry<URI, CertificateRepositoryObject> entry : second.getValidatedObjects().entrySet()) {
+            assertEquals(entry.getKey().toString(), first.getValidatedObjects().get(entry.getKey()).isRevoked(), entry.getValue().isRevoked());
+        }
+    }
+
+    @Test
+    public void shouldNotFailObjectsWhenStoreFails() {
+        ValidationStateStore store = new InMemoryValidationStateStore() {
+            @Override
+            public void put(ValidationStateKey key, ValidationState state) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+
+            @Override
+            public void retainAll(Set<ValidationStateKey> keys) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+        };
+        X509ResourceCertificateTopDownValidator expected = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2));
+        X509ResourceCertificateTopDownValidator subject = validate(ValidationResult.withLocation(TRUST_ANCHOR_URI), new ForkJoinPool(2), store);
+
+        assertEquals(new ArrayList<>(expected.getValidatedObjects().keySet()), new ArrayList<>(subject.getValidatedObjects().keySet()));
+        assertEquals(expected.getValidationResult().getFailuresForAllLocations(), subject.getValidationResult().getFailuresForAllLocations());
+    }
+
+    @Test
+    public void shouldNotKeepOutcomesOfEarlierManifests() {
+        // A trust anchor with a manifest that lists its CRL. Every reissued manifest changes the context of the CRL.
+        URI trustAnchorUri = URI.create("rsync://foo.host/bar.cer");
+        URI manifestUri = URI.create("rsync://foo.host/bar/manifest.mft");
+        URI crlUri = URI.create("rsync://foo.host/bar/bar.crl");
+        X509ResourceCertificate repositoryTrustAnchor = X509ResourceCertificateTest.createSelfSignedCaResourceCertificateBuilder()
+                .withSubjectInformationAccess(
+                        new X509CertificateInformationAccessDescriptor(X509CertificateInformationAccessDescriptor.ID_AD_CA_REPOSITORY, manifestUri.resolve(".")),
+                        new X509CertificateInformationAccessDescriptor(X509CertificateInformationAccessDescriptor.ID_AD_RPKI_MANIFEST, manifestUri))
+                .build();
+        DateTime thisUpdateTime = ManifestCmsTest.getRootManifestCms().getThisUpdateTime();
+        X509Crl crl = buildCrl(thisUpdateTime, thisUpdateTime.plusDays(1), 1);
+
+        Map<URI, byte[]> repository = new ConcurrentHashMap<>();
+        repository.put(crlUri, crl.getEncoded());
+        ValidationOptions options = ValidationOptions.strictValidation().withValidationTime(thisUpdateTime.plusMinutes(1));
+        ValidationStateStore store = new InMemoryValidationStateStore();
+        for (int manifestNumber = 1; manifestNumber <= 3; manifestNumber++) {
+            ManifestCmsBuilder manifest = ManifestCmsTest.getRootManifestBuilder().withManifestNumber(BigInteger.valueOf(manifestNumber));
+            manifest.addFile("bar.crl", crl.getEncoded());
+            repository.put(manifestUri, manifest.build(ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate()).getEncoded());
+
+            ValidationResult result = ValidationResult.withLocation(trustAnchorUri);
+            X509ResourceCertificateTopDownValidator validator = new X509ResourceCertificateTopDownValidator(options, result, (uri, context, validationResult) -> crl, repository::get, new ForkJoinPool(1), store);
+            validator.validate(trustAnchorUri.toString(), repositoryTrustAnchor);
+
+            assertFalse(result.getFailuresForAllLocations().toString(), result.hasFailures());
+            assertTrue(validator.getValidatedObjects().containsKey(crlUri));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    public void shouldRevalidateWhenCrlChanges() {
+        // The manifest and its CRL stay the same, but the CRL found by the locator is replaced by one that expires
+        // earlier. The stored outcome must not be reused, nor outlive the CRL it was checked against.
+        URI trustAnchorUri = URI.create("rsync://foo.host/bar.cer");
+        URI manifestUri = URI.create("rsync://foo.host/bar/manifest.mft");
+        URI crlUri = URI.create("rsync://foo.host/bar/bar.crl");
+        X509ResourceCertificate repositoryTrustAnchor = X509ResourceCertificateTest.createSelfSignedCaResourceCertificateBuilder()
+                .withSubjectInformationAccess(
+                        new X509CertificateInformationAccessDescriptor(X509CertificateInformationAccessDescriptor.ID_AD_CA_REPOSITORY, manifestUri.resolve(".")),
+                        new X509CertificateInformationAccessDescriptor(X509CertificateInformationAccessDescriptor.ID_AD_RPKI_MANIFEST, manifestUri))
+                .build();
+        DateTime thisUpdateTime = ManifestCmsTest.getRootManifestCms().getThisUpdateTime();
+        X509Crl crl = buildCrl(thisUpdateTime, thisUpdateTime.plusDays(1), 1);
+        X509Crl replacedCrl = buildCrl(thisUpdateTime, thisUpdateTime.plusHours(1), 2);
+
+        ManifestCmsBuilder manifest = ManifestCmsTest.getRootManifestBuilder();
+        manifest.addFile("bar.crl", crl.getEncoded());
+        Map<URI, byte[]> repository = new ConcurrentHashMap<>();
+        repository.put(crlUri, crl.getEncoded());
+        repository.put(manifestUri, manifest.build(ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate()).getEncoded());
+
+        ValidationOptions options = ValidationOptions.strictValidation().withValidationTime(thisUpdateTime.plusMinutes(1));
+        List<ValidationState> storedStates = new ArrayList<>();
+        ValidationStateStore store = new InMemoryValidationStateStore() {
+            @Override
+            public void put(ValidationStateKey key, ValidationState state) {
+                storedStates.add(state);
+                super.put(key, state);
+            }
+        };
+        for (X509Crl locatedCrl : Arrays.asList(crl, crl, replacedCrl)) {
+            ValidationResult result = ValidationResult.withLocation(trustAnchorUri);
+            X509ResourceCertificateTopDownValidator validator = new X509ResourceCertificateTopDownValidator(options, result, (uri, context, validationResult) -> locatedCrl, repository::get, new ForkJoinPool(1), store);
+            validator.validate(trustAnchorUri.toString(), repositoryTrustAnchor);
+            assertFalse(result.getFailuresForAllLocations().toString(), result.hasFailures());
+        }
+
+        assertEquals(2, storedStates.size());
+        assertEquals(replacedCrl.getNextUpdateTime().plusMillis(1), storedStates.get(1).getRecheckAt());
+    }
+
+    private X509Crl buildCrl(DateTime thisUpdateTime, DateTime nextUpdateTime, int number) {
+        return new X509CrlBuilder()
+                .withIssuerDN(X509ResourceCertificateTest.TEST_SELF_SIGNED_CERTIFICATE_NAME)
+                .withThisUpdateTime(thisUpdateTime)
+                .withNextUpdateTime(nextUpdateTime)
+                .withNumber(BigInteger.valueOf(number))
+                .withAuthorityKeyIdentifier(ManifestCmsTest.ROOT_KEY_PAIR.getPublic())
+                .withSignatureProvider(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER)
+                .build(ManifestCmsTest.ROOT_KEY_PAIR.getPrivate());
+    }
+
+    private X509ResourceCertificateTopDownValidator validate(ValidationResult result, ForkJoinPool pool) {
+        return validate(result, pool, null);
+    }
+
+    private X509ResourceCertificateTopDownValidator validate(ValidationResult result, ForkJoinPool pool, ValidationStateStore store) {
+        try {
+            X509ResourceCertificateTopDownValidator validator = new X509ResourceCertificateTopDownValidator(ValidationOptions.strictValidation(), result, crlLocator, objectSource, pool, store);
+            validator.validate(TRUST_ANCHOR_URI.toString(), trustAnchor);
+            return validator;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private byte[] read(URI uri) {
+        File file = new File(CONFORMANCE_DIRECTORY, CONFORMANCE_URI.relativize(uri).getPath());
+        try {
+            return file.isFile() ? Files.readAllBytes(file.toPath()) : null;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import com.google.common.collect.Lists;
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class AllowedRouteTableTest {
+
+    private static final AllowedRoute IPV4 = allowed("AS1", "10.0.0.0/8", 16);
+    private static final AllowedRoute IPV4_HIGH = allowed("AS4294967295", "255.255.255.255/32", 32);
+    private static final AllowedRoute IPV6 = allowed("AS2", "2001:db8::/32", 48);
+    private static final AllowedRoute IPV6_HIGH = allowed("AS3", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ff00/120", 128);
+
+    @Test
+    public void shouldHoldAllowedRoutes() {
+        AllowedRouteTable subject = AllowedRouteTable.of(Arrays.asList(IPV6_HIGH, IPV4, IPV6, IPV4_HIGH));
+
+        assertEquals(4, subject.size());
+        assertEquals(Arrays.asList(IPV6_HIGH, IPV4, IPV6, IPV4_HIGH), Lists.newArrayList(subject));
+        assertEquals(4294967295L, subject.getAsn(3));
+        assertTrue(subject.isIpv6(0));
+        assertEquals(0xFFFFFFFFFFFFFFFFL, subject.getPrefixHigh(0));
+        assertEquals(0xFFFFFFFFFFFFFF00L, subject.getPrefixLow(0));
+        assertEquals(120, subject.getPrefixLength(0));
+        assertEquals(128, subject.getMaximumLength(0));
+        assertFalse(subject.isIpv6(1));
+        assertEquals(0x0A00000000000000L, subject.getPrefixHigh(1));
+    }
+
+    @Test
+    public void shouldAddPrimitivePrefixes() {
+        AllowedRouteTable subject = AllowedRouteTable.builder()
+            .addIpv4(1, 0x0A000000, 8, 16)
+            .addIpv6(2, 0x20010db800000000L, 0L, 32, 48)
+            .build();
+
+        assertEquals(Arrays.asList(IPV4, IPV6), Lists.newArrayList(subject));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAddressBitsBeyondPrefixLength() {
+        AllowedRouteTable.builder().addIpv4(1, 0x0A000001, 8, 16);
+    }
+
+    @Test
+    public void shouldCreateFromRoas() {
+        RoaCms roa = RoaCmsTest.createRoaCms(Arrays.asList(new RoaPrefix(IpRange.parse("10.0.0.0/8"), 16), new RoaPrefix(IpRange.parse("2001:db8::/32"))));
+
+        AllowedRouteTable subject = AllowedRouteTable.fromRoas(Collections.singletonList(roa));
+
+        assertEquals(AllowedRoute.fromRoas(Collections.singletonList(roa)), Lists.newArrayList(subject));
+    }
+
+    @Test
+    public void shouldSortAndDeduplicate() {
+        AllowedRoute moreSpecific = allowed("AS1", "10.0.0.0/16", 16);
+        AllowedRoute otherAsn = allowed("AS2", "10.0.0.0/8", 16);
+        AllowedRouteTable subject = AllowedRouteTable.of(Arrays.asList(IPV6_HIGH, IPV6, moreSpecific, otherAsn, IPV4, IPV4_HIGH, IPV4, IPV6));
+
+        assertEquals(Arrays.asList(IPV4, IPV4, otherAsn, moreSpecific, IPV4_HIGH, IPV6, IPV6, IPV6_HIGH), Lists.newArrayList(subject.sorted()));
+        assertEquals(Arrays.asList(IPV4, otherAsn, moreSpecific, IPV4_HIGH, IPV6, IPV6_HIGH), Lists.newArrayList(subject.deduplicated()));
+    }
+
+    @Test
+    public void shouldComputeDifference() {
+        AllowedRouteTable previous = AllowedRouteTable.of(Arrays.asList(IPV4, IPV6, IPV4_HIGH));
+        AllowedRouteTable current = AllowedRouteTable.of(Arrays.asList(IPV6_HIGH, IPV4, IPV6, IPV4));
+
+        assertEquals(Collections.singletonList(IPV6_HIGH), Lists.newArrayList(current.minus(previous)));
+        assertEquals(Collections.singletonList(IPV4_HIGH), Lists.newArrayList(previous.minus(current)));
+        assertEquals(0, current.minus(current).size());
+    }
+
+    @Test
+    public void shouldBuildRouteOriginValidationIndex() {
+        List<AllowedRoute> allowedRoutes = Arrays.asList(IPV4, IPV6, IPV4_HIGH, IPV6_HIGH);
+        RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(AllowedRouteTable.of(allowedRoutes));
+
+        RouteValidityResults results = subject.validateAll(Arrays.asList(
+            new AnnouncedRoute(Asn.parse("AS1"), IpRange.parse("10.1.0.0/16")),
+            new AnnouncedRoute(Asn.parse("AS1"), IpRange.parse("2001:db8::/48")),
+            new AnnouncedRoute(Asn.parse("AS3"), IpRange.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/128"))));
+
+        assertEquals(RouteValidityState.VALID, results.getState(0));
+        assertEquals(0, results.getCoveringAllowedRoute(0, 0));
+        assertEquals(RouteValidityState.INVALID_ASN, results.getState(1));
+        assertEquals(1, results.getCoveringAllowedRoute(1, 0));
+        assertEquals(RouteValidityState.VALID, results.getState(2));
+        assertEquals(3, results.getCoveringAllowedRoute(2, 0));
+    }
+
+    private static AllowedRoute allowed(String asn, String prefix, int maximumLength) {
+        return new AllowedRoute(Asn.parse(asn), IpRange.parse(prefix), maximumLength);
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.Ipv6Address;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class AllowedRouteWriterTest {
+
+    private static final AllowedRoute IPV4 = new AllowedRoute(Asn.parse("AS3333"), IpRange.parse("193.0.0.0/21"), 21);
+    private static final AllowedRoute IPV6 = new AllowedRoute(Asn.parse("AS4294967295"), IpRange.parse("2001:db8::/32"), 48);
+
+    @Test
+    public void shouldWriteCsv() throws IOException {
+        StringWriter out = new StringWriter();
+        try (AllowedRouteWriter writer = AllowedRouteWriter.csv(out)) {
+            writer.write(IPV4).write(IPV6);
+        }
+
+        assertEquals("ASN,IP Prefix,Max Length\nAS3333,193.0.0.0/21,21\nAS4294967295,2001:db8::/32,48\n", out.toString());
+    }
+
+    @Test
+    public void shouldWriteJson() throws IOException {
+        StringWriter out = new StringWriter();
+        try (AllowedRouteWriter writer = AllowedRouteWriter.json(out)) {
+            writer.write(AllowedRouteTable.of(Arrays.asList(IPV4, IPV6)));
+        }
+
+        assertEquals("{\"roas\":[\n"
+            + "{\"asn\":\"AS3333\",\"prefix\":\"193.0.0.0/21\",\"maxLength\":21},\n"
+            + "{\"asn\":\"AS4294967295\",\"prefix\":\"2001:db8::/32\",\"maxLength\":48}\n"
+            + "]}\n", out.toString());
+    }
+
+    @Test
+    public void shouldWriteEmptyJson() throws IOException {
+        StringWriter out = new StringWriter();
+        AllowedRouteWriter.json(out).close();
+
+        assertEquals("{\"roas\":[\n]}\n", out.toString());
+    }
+
+    @Test
+    public void shouldWriteBinary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (AllowedRouteWriter writer = AllowedRouteWriter.binary(Channels.newChannel(out))) {
+            writer.write(IPV4).write(IPV6);
+        }
+
+        ByteBuffer expected = ByteBuffer.allocate(4 + 11 + 23);
+        expected.put(new byte[]{'V', 'R', 'P', 1});
+        expected.put((byte) 4).put((byte) 21).put((byte) 21).putInt(3333).putInt(0xC1000000);
+        expected.put((byte) 6).put((byte) 32).put((byte) 48).putInt(-1).putLong(0x20010db800000000L).putLong(0L);
+        assertEquals(Arrays.toString(expected.array()), Arrays.toString(out.toByteArray()));
+    }
+
+    @Test
+    public void shouldWriteRoaPrefixes() throws IOException {
+        RoaCms roa = RoaCmsTest.createRoaCms(Arrays.asList(new RoaPrefix(IpRange.parse("10.0.0.0/8"), 16), new RoaPrefix(IpRange.parse("2001:db8::/32"))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (AllowedRouteWriter writer = AllowedRouteWriter.csv(Channels.newChannel(out))) {
+            writer.write(roa);
+        }
+
+        String asn = roa.getAsn().toString();
+        assertEquals("ASN,IP Prefix,Max Length\n" + asn + ",10.0.0.0/8,16\n" + asn + ",2001:db8::/32,32\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldFormatPrefixesLikeIpRange() throws IOException {
+        Random random = new Random(20211021L);
+        StringWriter out = new StringWriter();
+        StringBuilder expected = new StringBuilder("ASN,IP Prefix,Max Length\n");
+        try (AllowedRouteWriter writer = AllowedRouteWriter.csv(out)) {
+            for (int i = 0; i < 10000; i++) {
+                // Mostly zero groups, to cover the compression of runs of zeros.
+                BigInteger address = BigInteger.ZERO;
+                for (int group = 0; group < 8; group++) {
+                    int value = random.nextInt(3) == 0 ? random.nextInt(0x10000) : 0;
+                    address = address.shiftLeft(16).or(BigInteger.valueOf(value));
+                }
+                AllowedRoute allowedRoute = new AllowedRoute(new Asn(i), IpRange.prefix(new Ipv6Address(address), 128), 128);
+                writer.write(allowedRoute);
+                expected.append("AS").append(i).append(',').append(allowedRoute.getPrefix()).append(",128\n");
+            }
+        }
+
+        assertEquals(expected.toString(), out.toString());
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class IncrementalRouteOriginValidationIndexTest {
+
+    private static final Asn AS1 = Asn.parse("AS1");
+    private static final Asn AS2 = Asn.parse("AS2");
+
+    @Test
+    public void shouldApplyAddedAndWithdrawnRoutes() {
+        IncrementalRouteOriginValidationIndex subject = new IncrementalRouteOriginValidationIndex(Collections.singletonList(allowed(AS1, "10.0.0.0/8", 16)));
+        AnnouncedRoute announcedRoute = new AnnouncedRoute(AS2, IpRange.parse("10.1.0.0/16"));
+        assertEquals(RouteValidityState.INVALID_ASN, subject.validate(announcedRoute));
+
+        subject.apply(Collections.singletonList(allowed(AS2, "10.1.0.0/16", 16)), Collections.<AllowedRoute>emptyList());
+        assertEquals(RouteValidityState.VALID, subject.validate(announcedRoute));
+        assertEquals(2, subject.snapshot().size());
+
+        subject.apply(Collections.<AllowedRoute>emptyList(), Arrays.asList(allowed(AS1, "10.0.0.0/8", 16), allowed(AS2, "10.1.0.0/16", 16)));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(announcedRoute));
+        assertEquals(0, subject.snapshot().size());
+    }
+
+    @Test
+    public void shouldTreatAllowedRoutesAsSet() {
+        IncrementalRouteOriginValidationIndex subject = new IncrementalRouteOriginValidationIndex();
+
+        subject.apply(Arrays.asList(allowed(AS1, "2001:db8::/32", 48), allowed(AS1, "2001:db8::/32", 48)), Collections.<AllowedRoute>emptyList());
+        assertEquals(1, subject.snapshot().size());
+
+        subject.apply(Collections.<AllowedRoute>emptyList(), Collections.singletonList(allowed(AS2, "2001:db8::/32", 48)));
+        assertEquals(1, subject.snapshot().size());
+
+        subject.apply(Collections.singletonList(allowed(AS1, "2001:db8::/32", 48)), Collections.singletonList(allowed(AS1, "2001:db8::/32", 48)));
+        assertEquals(1, subject.snapshot().size());
+        assertEquals(RouteValidityState.VALID, subject.validate(new AnnouncedRoute(AS1, IpRange.parse("2001:db8:1::/48"))));
+    }
+
+    @Test
+    public void shouldKeepSnapshotsUnchanged() {
+        IncrementalRouteOriginValidationIndex subject = new IncrementalRouteOriginValidationIndex(Collections.singletonList(allowed(AS1, "10.0.0.0/8", 8)));
+        IncrementalRouteOriginValidationIndex.Snapshot before = subject.snapshot();
+
+        IncrementalRouteOriginValidationIndex.Snapshot after = subject.apply(Collections.singletonList(allowed(AS2, "10.0.0.0/8", 8)), Collections.singletonList(allowed(AS1, "10.0.0.0/8", 8)));
+
+        AnnouncedRoute announcedRoute = new AnnouncedRoute(AS1, IpRange.parse("10.0.0.0/8"));
+        assertEquals(RouteValidityState.VALID, before.validate(announcedRoute));
+        assertEquals(RouteValidityState.INVALID_ASN, after.validate(announcedRoute));
+        assertEquals(before.getVersion() + 1, after.getVersion());
+    }
+
+    @Test
+    public void shouldClassifyLikeRouteOriginValidationPolicyAfterEveryDelta() {
+        Random random = new Random(20211020L);
+        RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+        IncrementalRouteOriginValidationIndex subject = new IncrementalRouteOriginValidationIndex();
+        Set<AllowedRoute> allowedRoutes = new LinkedHashSet<>();
+        for (int round = 0; round < 30; round++) {
+            List<AllowedRoute> added = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                added.add(randomAllowedRoute(random));
+            }
+            List<AllowedRoute> withdrawn = new ArrayList<>();
+            for (AllowedRoute allowedRoute : allowedRoutes) {
+                if (random.nextInt(4) == 0) {
+                    withdrawn.add(allowedRoute);
+                }
+            }
+            withdrawn.add(randomAllowedRoute(random));
+
+            allowedRoutes.removeAll(withdrawn);
+            allowedRoutes.addAll(added);
+            IncrementalRouteOriginValidationIndex.Snapshot snapshot = subject.apply(added, withdrawn);
+
+            NestedIntervalMap<IpResource, List<AllowedRoute>> allowedRouteMap = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+            assertEquals(allowedRoutes.size(), snapshot.size());
+            for (int i = 0; i < 300; i++) {
+                AnnouncedRoute announcedRoute = new AnnouncedRoute(new Asn(1 + random.nextInt(3)), randomPrefix(random));
+                assertEquals(announcedRoute.toString(), policy.validateAnnouncedRoute(allowedRouteMap, announcedRoute), snapshot.validate(announcedRoute));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadConsistentSnapshotsWhileUpdating() throws InterruptedException {
+        List<AllowedRoute> even = new ArrayList<>();
+        List<AllowedRoute> odd = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            even.add(new AllowedRoute(AS1, IpRange.prefix(new Ipv4Address(0x0A000000L | (i << 8)), 24), 24));
+            odd.add(new AllowedRoute(AS2, IpRange.prefix(new Ipv4Address(0x0A000000L | (i << 8)), 24), 24));
+        }
+        IncrementalRouteOriginValidationIndex subject = new IncrementalRouteOriginValidationIndex(even);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                IncrementalRouteOriginValidationIndex.Snapshot snapshot = subject.snapshot();
+                Asn expected = snapshot.getVersion() % 2 == 1 ? AS1 : AS2;
+                for (AllowedRoute allowedRoute : even) {
+                    if (snapshot.validate(new AnnouncedRoute(expected, allowedRoute.getPrefix())) != RouteValidityState.VALID) {
+                        failure.set("inconsistent snapshot version " + snapshot.getVersion());
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200; i++) {
+            if (i % 2 == 0) {
+                subject.apply(odd, even);
+            } else {
+                subject.apply(even, odd);
+            }
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+    }
+
+    private static AllowedRoute randomAllowedRoute(Random random) {
+        IpRange prefix = randomPrefix(random);
+        int maximumLength = prefix.getPrefixLength() + random.nextInt(prefix.getType().getBitSize() - prefix.getPrefixLength() + 1);
+        return new AllowedRoute(new Asn(1 + random.nextInt(3)), prefix, maximumLength);
+    }
+
+    private static IpRange randomPrefix(Random random) {
+        if (random.nextBoolean()) {
+            int length = 8 + random.nextInt(25);
+            long address = (10L << 24) | (random.nextInt(1 << 6) << 18) | random.nextInt(1 << 2);
+            return IpRange.prefix(new Ipv4Address(address & (0xFFFFFFFFL << (32 - length)) & 0xFFFFFFFFL), length);
+        } else {
+            int length = random.nextBoolean() ? 32 + random.nextInt(33) : 64 + random.nextInt(65);
+            BigInteger address = BigInteger.valueOf(0x20010db8L).shiftLeft(96)
+                .or(BigInteger.valueOf(random.nextInt(1 << 4)).shiftLeft(92))
+                .or(BigInteger.valueOf(random.nextInt(1 << 4)).shiftLeft(60))
+                .or(BigInteger.valueOf(random.nextInt(1 << 2)));
+            return IpRange.prefix(new Ipv6Address(address.shiftRight(128 - length).shiftLeft(128 - length)), length);
+        }
+    }
+
+    private static AllowedRoute allowed(Asn asn, String prefix, int maximumLength) {
+        return new AllowedRoute(asn, IpRange.parse(prefix), maximumLength);
+    }
+}
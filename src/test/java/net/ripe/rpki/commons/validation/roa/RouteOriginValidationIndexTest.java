@@ -0,0 +1,226 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class RouteOriginValidationIndexTest {
+
+    private static final Asn AS1 = Asn.parse("AS1");
+    private static final Asn AS2 = Asn.parse("AS2");
+
+    @Test
+    public void shouldBeUnknownWithoutCoveringAllowedRoute() {
+        RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(Collections.singletonList(allowed(AS1, "192.168.0.0/16", 20)));
+
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(announced(AS1, "192.169.0.0/20")));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(announced(AS1, "192.168.0.0/15")));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(announced(AS1, "2001:db8::/32")));
+    }
+
+    @Test
+    public void shouldClassifyCoveredRoutes() {
+        RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(Arrays.asList(
+            allowed(AS1, "192.168.0.0/16", 20),
+            allowed(AS1, "2001:db8::/32", 48)));
+
+        assertEquals(RouteValidityState.VALID, subject.validate(announced(AS1, "192.168.0.0/16")));
+        assertEquals(RouteValidityState.VALID, subject.validate(announced(AS1, "192.168.16.0/20")));
+        assertEquals(RouteValidityState.INVALID_ASN, subject.validate(announced(AS2, "192.168.16.0/20")));
+        assertEquals(RouteValidityState.INVALID_LENGTH, subject.validate(announced(AS1, "192.168.16.0/21")));
+        assertEquals(RouteValidityState.VALID, subject.validate(announced(AS1, "2001:db8:ffff::/48")));
+        assertEquals(RouteValidityState.INVALID_LENGTH, subject.validate(announced(AS1, "2001:db8::1/128")));
+    }
+
+    @Test
+    public void shouldBeValidWhenAnyCoveringAllowedRouteMatches() {
+        RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(Arrays.asList(
+            allowed(AS2, "10.0.0.0/8", 24),
+            allowed(AS1, "10.0.0.0/16", 16),
+            allowed(AS2, "10.0.0.0/16", 24),
+            allowed(AS1, "0.0.0.0/0", 32)));
+
+        assertEquals(RouteValidityState.VALID, subject.validate(announced(AS1, "10.0.1.0/24")));
+        assertEquals(RouteValidityState.VALID, subject.validate(announced(AS2, "10.0.1.0/24")));
+        assertEquals(RouteValidityState.INVALID_ASN, subject.validate(announced(Asn.parse("AS3"), "10.0.1.0/24")));
+        assertEquals(4, subject.size());
+    }
+
+    @Test
+    public void shouldAcceptPrimitiveAddresses() {
+        RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(Arrays.asList(
+            allowed(Asn.parse("AS4294967295"), "255.255.255.0/24", 24),
+            allowed(AS1, "2001:db8::ff00/120", 128)));
+
+        assertEquals(RouteValidityState.VALID, subject.validateIpv4(4294967295L, 0xFFFFFF00, 24));
+        assertEquals(RouteValidityState.INVALID_ASN, subject.validateIpv4(1L, 0xFFFFFF00, 24));
+        assertEquals(RouteValidityState.VALID, subject.validateIpv6(1L, 0x20010db800000000L, 0xFF80L, 121));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validateIpv6(1L, 0x20010db800000000L, 0xFE00L, 120));
+    }
+
+    @Test
+    public void shouldClassifyLikeRouteOriginValidationPolicy() {
+        Random random = new Random(20211018L);
+        RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+        for (int round = 0; round < 20; round++) {
+            List<AllowedRoute> allowedRoutes = randomAllowedRoutes(random, 200);
+            NestedIntervalMap<IpResource, List<AllowedRoute>> allowedRouteMap = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+            RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(allowedRoutes);
+
+            for (int i = 0; i < 1000; i++) {
+                AnnouncedRoute announcedRoute = new AnnouncedRoute(new Asn(1 + random.nextInt(3)), randomPrefix(random));
+                assertEquals(announcedRoute.toString(), policy.validateAnnouncedRoute(allowedRouteMap, announcedRoute), subject.validate(announcedRoute));
+            }
+        }
+    }
+
+    @Test
+    public void shouldValidateBatchInAnnouncementOrder() {
+        List<AllowedRoute> allowedRoutes = Arrays.asList(
+            allowed(AS2, "10.0.0.0/8", 24),
+            allowed(AS1, "10.0.0.0/16", 16),
+            allowed(AS1, "2001:db8::/32", 48),
+            allowed(AS2, "10.0.0.0/16", 24));
+        RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(allowedRoutes);
+
+        RouteValidityResults results = subject.validateAll(Arrays.asList(
+            announced(AS1, "2001:db8::/48"),
+            announced(AS1, "10.0.1.0/24"),
+            announced(AS1, "192.168.0.0/16"),
+            announced(AS1, "10.1.0.0/16")));
+
+        assertEquals(4, results.size());
+        assertEquals(RouteValidityState.VALID, results.getState(0));
+        assertArrayEquals(new int[]{2}, results.getCoveringAllowedRoutes(0));
+        assertEquals(RouteValidityState.INVALID_ASN, results.getState(1));
+        assertArrayEquals(new int[]{0, 1, 3}, results.getCoveringAllowedRoutes(1));
+        assertEquals(RouteValidityState.UNKNOWN, results.getState(2));
+        assertEquals(0, results.getCoveringAllowedRouteCount(2));
+        assertEquals(RouteValidityState.INVALID_ASN, results.getState(3));
+        assertEquals(0, results.getCoveringAllowedRoute(3, 0));
+        assertEquals(Integer.valueOf(1), results.countByState().get(RouteValidityState.VALID));
+    }
+
+    @Test
+    public void shouldValidateBatchLikeSingleAnnouncements() {
+        Random random = new Random(20211019L);
+        List<AllowedRoute> allowedRoutes = randomAllowedRoutes(random, 2000);
+        RouteOriginValidationIndex subject = RouteOriginValidationIndex.of(allowedRoutes);
+        List<AnnouncedRoute> announcedRoutes = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            announcedRoutes.add(new AnnouncedRoute(new Asn(1 + random.nextInt(3)), randomPrefix(random)));
+        }
+
+        RouteValidityResults results = subject.validateAll(announcedRoutes);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        RouteValidityResults parallel;
+        try {
+            parallel = subject.validateAll(announcedRoutes, pool);
+        } finally {
+            pool.shutdown();
+        }
+        RouteValidityResults streamed = subject.validateAll(announcedRoutes.stream());
+
+        for (int i = 0; i < announcedRoutes.size(); i++) {
+            AnnouncedRoute announcedRoute = announcedRoutes.get(i);
+            List<Integer> expectedCovering = new ArrayList<>();
+            for (int j = 0; j < allowedRoutes.size(); j++) {
+                if (allowedRoutes.get(j).getPrefix().contains(announcedRoute.getPrefix())) {
+                    expectedCovering.add(j);
+                }
+            }
+            List<Integer> covering = new ArrayList<>();
+            for (int id : results.getCoveringAllowedRoutes(i)) {
+                covering.add(id);
+            }
+            Collections.sort(covering);
+
+            assertEquals(subject.validate(announcedRoute), results.getState(i));
+            assertEquals(expectedCovering, covering);
+            assertEquals(results.getState(i), parallel.getState(i));
+            assertArrayEquals(results.getCoveringAllowedRoutes(i), parallel.getCoveringAllowedRoutes(i));
+            assertEquals(results.getState(i), streamed.getState(i));
+        }
+    }
+
+    private static List<AllowedRoute> randomAllowedRoutes(Random random, int count) {
+        List<AllowedRoute> allowedRoutes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            IpRange prefix = randomPrefix(random);
+            int maximumLength = prefix.getPrefixLength() + random.nextInt(prefix.getType().getBitSize() - prefix.getPrefixLength() + 1);
+            allowedRoutes.add(new AllowedRoute(new Asn(1 + random.nextInt(3)), prefix, maximumLength));
+        }
+        return allowedRoutes;
+    }
+
+    /**
+     * Prefixes below a few short prefixes, so that the allowed and announced routes overlap a lot.
+     */
+    private static IpRange randomPrefix(Random random) {
+        if (random.nextBoolean()) {
+            int length = 8 + random.nextInt(25);
+            long address = (10L << 24) | (random.nextInt(1 << 6) << 18) | random.nextInt(1 << 2);
+            return IpRange.prefix(new Ipv4Address(address & (0xFFFFFFFFL << (32 - length)) & 0xFFFFFFFFL), length);
+        } else {
+            int length = random.nextBoolean() ? 32 + random.nextInt(33) : 64 + random.nextInt(65);
+            BigInteger address = BigInteger.valueOf(0x20010db8L).shiftLeft(96)
+                .or(BigInteger.valueOf(random.nextInt(1 << 4)).shiftLeft(92))
+                .or(BigInteger.valueOf(random.nextInt(1 << 4)).shiftLeft(60))
+                .or(BigInteger.valueOf(random.nextInt(1 << 2)));
+            return IpRange.prefix(new Ipv6Address(address.shiftRight(128 - length).shiftLeft(128 - length)), length);
+        }
+    }
+
+    private static AllowedRoute allowed(Asn asn, String prefix, int maximumLength) {
+        return new AllowedRoute(asn, IpRange.parse(prefix), maximumLength);
+    }
+
+    private static AnnouncedRoute announced(Asn asn, String prefix) {
+        return new AnnouncedRoute(asn, IpRange.parse(prefix));
+    }
+}